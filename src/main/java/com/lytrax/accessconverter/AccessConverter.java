@@ -25,20 +25,20 @@ package com.lytrax.accessconverter;
 
 import com.healthmarketscience.jackcess.*;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
 import java.io.StringWriter;
-import java.net.URI;
-import java.nio.file.FileSystems;
-import java.nio.file.FileSystem;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.Writer;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.zip.Deflater;
 
 import javax.json.Json;
 import javax.json.JsonArrayBuilder;
@@ -54,18 +54,44 @@ import org.apache.commons.io.FilenameUtils;
  * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
  */
 public class AccessConverter {
+    public static final String STDOUT = "-";
 
     public static Args args;
-    public static List<LogRecord> logs = new ArrayList<>();
-    public static List<ErrorRecord> errors = new ArrayList<>();
+    public static List<LogRecord> logs = Collections.synchronizedList(new ArrayList<>());
+    public static List<ErrorRecord> errors = Collections.synchronizedList(new ArrayList<>());
     public static String result;
     public static String outputFilename = null;
     public static File outputFile = null;
+    /**
+     * The files of the tables, when "--json-files-mode many" writes each table
+     * to its own file next to the output index file.
+     */
+    public static List<File> tableFiles = new ArrayList<>();
     public static String logFilename = null;
     public static File logFile = null;
     public static String zipFilename = null;
     public static File zipFile = null;
     public static ProgressStatus progressStatus = null;
+    public static List<TargetRecord> targets = new ArrayList<>();
+    public static List<InputChannel> inputChannels = Collections.synchronizedList(new ArrayList<>());
+    public static AccessInput accessInput = null;
+    /**
+     * The output zip archive, open during the conversion when extracted files
+     * are written straight into it.
+     */
+    public static ZipArchive archive = null;
+    /**
+     * The dedup indexes of the outputs, when "-dedup-files" is used. Each
+     * output has its own, so its duplicates only reference its own copies.
+     */
+    public static List<DedupIndex> dedupIndexes = Collections.synchronizedList(new ArrayList<>());
+    private static int dedupIndexSize = DedupIndex.DEFAULT_SIZE;
+    public static AsyncFileSink fileSink = null;
+    /**
+     * Where messages and the result are printed; the standard error when the
+     * converted data goes to the standard output.
+     */
+    public static PrintStream console = System.out;
 
     static {
         System.setProperty("org.apache.commons.logging.Log",
@@ -78,6 +104,10 @@ public class AccessConverter {
     public static void main(String[] cmdArgs) throws InterruptedException {
         args = new Args(cmdArgs);
 
+        if (isStdoutOutput()) {
+            console = System.err;
+        }
+
         if (CheckCommandArguments()) {
             Run();
         }
@@ -86,13 +116,20 @@ public class AccessConverter {
         Exit();
     }
 
+    /**
+     * Whether "--output-file -" streams the converted data to the standard output.
+     */
+    public static boolean isStdoutOutput() {
+        return STDOUT.equals(args.GetOption("output-file"));
+    }
+
     public static void Print(String str) {
-        System.out.println(str);
+        console.println(str);
     }
 
     public static void Debug(String str) {
         if (args.GetFlag("debug", false)) {
-            System.out.println("DEBUG: " + str);
+            console.println("DEBUG: " + str);
         }
     }
 
@@ -113,17 +150,17 @@ public class AccessConverter {
 
     public static void Error(String error, Exception exception) {
         errors.add(new ErrorRecord(error, exception));
-        Debug(error + " -> " + exception.toString());
+        Debug(error + " -> " + String.valueOf(exception));
     }
 
     public static void Error(String error, Exception exception, String source) {
         errors.add(new ErrorRecord(error, exception, source));
-        Debug(error + " : " + exception.toString() + " -> " + source);
+        Debug(error + " : " + String.valueOf(exception) + " -> " + source);
     }
 
     public static void Error(String error, Exception exception, String source, String sql) {
         errors.add(new ErrorRecord(error, exception, source, sql));
-        Debug(error + " : " + exception.toString() + " -> " + source + " ~ " + sql);
+        Debug(error + " : " + String.valueOf(exception) + " -> " + source + " ~ " + sql);
     }
 
     public static boolean CheckCommandArguments() {
@@ -137,6 +174,44 @@ public class AccessConverter {
             return false;
         }
 
+        String compressionError = CompressedOutput.validate(args);
+
+        if (compressionError != null) {
+            Error(compressionError);
+            return false;
+        }
+
+        if (CompressedOutput.isEnabled(args) && args.HasFlag("compress")) {
+            Error("-compress can not be combined with --compress-output");
+            return false;
+        }
+
+        String jsonFilesMode = args.GetOption("json-files-mode", "one");
+
+        if (!jsonFilesMode.equals("one") && !jsonFilesMode.equals("many")) {
+            Error(String.format("Unknown JSON files mode '%s'", jsonFilesMode));
+            return false;
+        }
+
+        if (isStdoutOutput()) {
+            String task = args.GetOption("task");
+
+            if (jsonFilesMode.equals("many")) {
+                Error("JSON files mode 'many' can not be written to the standard output");
+                return false;
+            }
+
+            if (!task.equals("convert-json") && !task.equals("convert-ndjson") && !task.equals("convert-mysql-dump")) {
+                Error(String.format("Task '%s' can not be written to the standard output", task));
+                return false;
+            }
+
+            if (args.HasFlag("compress")) {
+                Error("The standard output can not be compressed");
+                return false;
+            }
+        }
+
         return true;
     }
 
@@ -144,33 +219,104 @@ public class AccessConverter {
         result = "";
 
         try {
-            File dbFile = new File(args.GetOption("access-file"));
-            Database db = new DatabaseBuilder(dbFile).setReadOnly(true).open();
+            accessInput = AccessInput.open(args);
+        } catch (IOException | NumberFormatException e) {
+            Error(String.format("Can't read Access file '%s'", args.GetOption("access-file")), e);
+            return;
+        }
+
+        dedupIndexes.clear();
+
+        if (args.HasFlag("dedup-files")) {
+            try {
+                dedupIndexSize = Integer.parseInt(
+                    args.GetOption("dedup-index-size", String.valueOf(DedupIndex.DEFAULT_SIZE))
+                );
+            } catch (NumberFormatException e) {
+                Error(String.format("Invalid dedup index size '%s'", args.GetOption("dedup-index-size")), e);
+            }
+        }
+
+        if (args.HasFlag("async-files")) {
+            fileSink = new AsyncFileSink(getThreads());
+        }
+
+        if (
+            args.HasFlag("compress") &&
+            args.GetOption("files-mode", "").startsWith("file") &&
+            !args.GetOption("zip-file", "").toLowerCase().endsWith(".gz")
+        ) {
+            OpenArchive();
+        }
+
+        try {
+            Database db = openDatabase();
 
             progressStatus = new ProgressStatus(db);
             progressStatus.calculateAllRows();
 
-            switch (args.GetOption("task")) {
-                case "convert-json": {
-                    File tempFile = getTempFile(Globals.OUTPUT_MYSQL);
-                    outputFile = getOutputFile("json");
+            String task = args.GetOption("task");
 
-                    try (FileWriter writer = new FileWriter(tempFile)) {
-                        JSONConverter jsonConverter = new JSONConverter(args, db, writer);
+            if (task.contains(",")) {
+                RunTasks(db, task.split(","));
+                task = "";
+            }
 
-                        if (jsonConverter.toJson()) {
-                            if (outputFile != null) {
-                                jsonConverter.writeJson();
+            switch (task) {
+                case "": {
+                    break;
+                }
+                case "convert-json":
+                case "convert-ndjson": {
+                    boolean isNdjson = task.equals("convert-ndjson");
+                    String extension = isNdjson ? "ndjson" : "json";
+                    String format = isNdjson ? "NDJSON" : "JSON";
+
+                    if (isStdoutOutput()) {
+                        try {
+                            Writer writer = new BufferedWriter(new OutputStreamWriter(getStdout(extension)));
+                            JSONConverter jsonConverter = new JSONConverter(args, db, writer);
+
+                            if (convertJson(jsonConverter, isNdjson, null)) {
                                 writer.close();
-                                tempFile.renameTo(outputFile);
-                                Log(String.format("JSON file '%s' created successfully", outputFilename));
+                                outputFilename = STDOUT;
+                                Log(String.format("%s data written to the standard output successfully", format));
                                 result = "success";
+                            } else {
+                                Log(String.format("Could not convert '%s' to %s", args.GetOption("access-file"), format));
+                            }
+                        } catch (IOException ex) {
+                            Error(String.format("Could not write %s data to the standard output", format), ex);
+                        }
+
+                        break;
+                    }
+
+                    File tempFile = getTempFile(isNdjson ? Globals.OUTPUT_JSON : Globals.OUTPUT_MYSQL);
+                    outputFile = getOutputFile(extension, true);
+                    boolean converted = false;
+
+                    try {
+                        try (Writer writer = CompressedOutput.newWriter(tempFile, args, getEntryName(extension))) {
+                            JSONConverter jsonConverter = new JSONConverter(args, db, writer);
+                            boolean manyFiles = !isNdjson && args.GetOption("json-files-mode", "one").equals("many");
+                            converted = manyFiles
+                                ? outputFile != null && convertJson(jsonConverter, false, outputFile)
+                                : convertJson(jsonConverter, isNdjson, null);
+
+                            if (!converted) {
+                                Log(String.format("Could not convert '%s' to %s", args.GetOption("access-file"), format));
                             }
-                        } else {
-                            Log(String.format("Could not convert '%s' to JSON", args.GetOption("access-file")));
+                        }
+
+                        // The writer is closed, so the file is complete
+                        if (converted && outputFile != null) {
+                            tempFile.renameTo(outputFile);
+                            Log(String.format("%s file '%s' created successfully", format, outputFilename));
+                            result = "success";
                         }
                     } catch (IOException ex) {
-                        Error(String.format("Could not create JSON data file '%s'", tempFile.getAbsolutePath()), ex);
+                        Error(String.format("Could not create %s data file '%s'", format, tempFile.getAbsolutePath()), ex);
                     } finally {
                         if (tempFile.exists()) {
                             tempFile.delete();
@@ -180,10 +326,33 @@ public class AccessConverter {
                     break;
                 }
                 case "convert-mysql-dump": {
+                    if (isStdoutOutput()) {
+                        try (
+                            SqlFileWriter writer = CompressedOutput.isEnabled(args)
+                                ? new SqlFileWriter(getStdout("sql"))
+                                : SqlFileWriter.stdout()
+                        ) {
+                            MySQLConverter mysqlConverter = new MySQLConverter(args, db, writer);
+
+                            if (mysqlConverter.toMySQLDump()) {
+                                writer.flush();
+                                outputFilename = STDOUT;
+                                Log("MySQL dump written to the standard output successfully");
+                                result = "success";
+                            } else {
+                                Error(String.format("Could not convert '%s' to MySQL dump file", args.GetOption("access-file")));
+                            }
+                        } catch (IOException ex) {
+                            Error("Could not write MySQL dump to the standard output", ex);
+                        }
+
+                        break;
+                    }
+
                     File tempFile = getTempFile(Globals.OUTPUT_MYSQL);
-                    outputFile = getOutputFile("sql");
+                    outputFile = getOutputFile("sql", true);
 
-                    try (SqlFileWriter writer = new SqlFileWriter(tempFile)) {
+                    try (SqlFileWriter writer = CompressedOutput.newSqlWriter(tempFile, args, getEntryName("sql"))) {
                         MySQLConverter mysqlConverter = new MySQLConverter(args, db, writer);
 
                         if (mysqlConverter.toMySQLDump()) {
@@ -207,7 +376,7 @@ public class AccessConverter {
                     break;
                 }
                 case "convert-sqlite": {
-                    File sqliteFile = getOutputFile("sqlite3");
+                    File sqliteFile = getOutputFile("sqlite3", false);
 
                     if (sqliteFile != null) {
                         SQLiteConverter sqliteConverter = new SQLiteConverter(args, db, sqliteFile);
@@ -232,27 +401,224 @@ public class AccessConverter {
             if (
                 "success".equals(result) &&
                 args.HasFlag("compress") &&
-                outputFile != null
+                (outputFile != null || !targets.isEmpty())
             ) {
                 Compress();
             }
         } catch (IOException e) {
             Error("Can't open Access file", e);
         }
+
+        LogInputStats();
+        accessInput.close();
+        closeInputChannels();
+
+        if (fileSink != null) {
+            fileSink.close();
+        }
+
+        if (args.HasFlag("dedup-files")) {
+            long duplicates = 0;
+            long bytesSaved = 0;
+
+            synchronized (dedupIndexes) {
+                for (DedupIndex dedupIndex : dedupIndexes) {
+                    duplicates += dedupIndex.getDuplicates();
+                    bytesSaved += dedupIndex.getBytesSaved();
+                }
+            }
+
+            Log(String.format(
+                "Deduplicated %d attachment and OLE files, %d bytes saved",
+                duplicates,
+                bytesSaved
+            ));
+        }
+
+        if (archive != null) {
+            // The conversion failed before the outputs were added
+            try {
+                archive.close();
+            } catch (IOException e) {
+                Error(String.format("Cannot create ZIP file '%s'", zipFilename), e);
+            }
+
+            archive.file.delete();
+            archive = null;
+            zipFile = null;
+        }
     }
 
-    private static File getOutputFile(String extension) {
+    /**
+     * Runs the JSON conversion selected by the arguments: NDJSON, every table
+     * into its own file next to the index file when one is given, or a JSON
+     * stream or document.
+     */
+    private static boolean convertJson(JSONConverter jsonConverter, boolean isNdjson, File indexFile) {
+        if (isNdjson) {
+            return jsonConverter.toNdjson();
+        }
+
+        if (indexFile != null) {
+            return jsonConverter.toJsonFiles(indexFile);
+        }
+
+        return args.HasFlag("json-stream") ? jsonConverter.toJsonStream() : jsonConverter.toJson();
+    }
+
+    /**
+     * Creates the dedup index of an output, or returns null when
+     * "-dedup-files" is not used.
+     */
+    public static DedupIndex newDedupIndex() {
+        if (!args.HasFlag("dedup-files")) {
+            return null;
+        }
+
+        DedupIndex dedupIndex = new DedupIndex(dedupIndexSize);
+        dedupIndexes.add(dedupIndex);
+
+        return dedupIndex;
+    }
+
+    public static Database openDatabase() throws IOException {
+        if (accessInput.file == null) {
+            InputChannel channel = accessInput.newChannel();
+            inputChannels.add(channel);
+
+            return new DatabaseBuilder(new File(AccessInput.getBaseName(accessInput.spec)))
+                .setReadOnly(true)
+                .setChannel(channel)
+                .open();
+        }
+
+        File dbFile = accessInput.file;
+        DatabaseBuilder builder = new DatabaseBuilder(dbFile).setReadOnly(true);
+        InputChannel channel = null;
+
+        if (args.HasFlag("mmap-input")) {
+            channel = new InputChannel.Mapped(dbFile.toPath());
+        } else if (args.HasFlag("input-stats")) {
+            channel = new InputChannel.Direct(dbFile.toPath());
+        }
+
+        if (channel != null) {
+            builder.setChannel(channel);
+            inputChannels.add(channel);
+        }
+
+        return builder.open();
+    }
+
+    /**
+     * Logs the page reads of the input channels of all the database handles.
+     */
+    private static void LogInputStats() {
+        if (inputChannels.isEmpty()) {
+            return;
+        }
+
+        long reads = 0;
+        long bytes = 0;
+        long nanos = 0;
+
+        synchronized (inputChannels) {
+            for (InputChannel channel : inputChannels) {
+                reads += channel.getReads();
+                bytes += channel.getBytes();
+                nanos += channel.getNanos();
+            }
+        }
+
+        double megabytes = bytes / (1024.0 * 1024.0);
+        double seconds = nanos / 1e9;
+
+        Log(String.format(
+            Locale.US,
+            "Input channel '%s': %d page reads, %.1f MB in %.3f s (%.1f MB/s)",
+            inputChannels.get(0).name,
+            reads,
+            megabytes,
+            seconds,
+            seconds > 0 ? megabytes / seconds : 0.0
+        ));
+    }
+
+    /**
+     * Closes the input channels, which the databases do not close when the
+     * channel is given to them.
+     */
+    private static void closeInputChannels() {
+        synchronized (inputChannels) {
+            for (InputChannel channel : inputChannels) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    Error(String.format("Could not close input channel '%s'", channel.name), e);
+                }
+            }
+
+            inputChannels.clear();
+        }
+    }
+
+    public static int getThreads() {
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        try {
+            threads = Integer.parseInt(args.GetOption("threads", String.valueOf(threads)));
+        } catch (NumberFormatException e) {
+            Error(String.format("Invalid number of threads '%s'", args.GetOption("threads")), e);
+        }
+
+        return Math.max(threads, 1);
+    }
+
+    private static File getOutputFile(String extension, boolean compressible) {
         outputFilename = args.HasOption("output-file")
             ? args.GetOption("output-file")
-            : FilenameUtils.getBaseName(args.GetOption("access-file")) + "." + extension;
+            : AccessInput.getBaseName(args.GetOption("access-file")) + "." + extension;
+
+        if (compressible) {
+            outputFilename = CompressedOutput.getFilename(outputFilename, args);
+        }
+
+        return resolveOutputFile(outputFilename);
+    }
 
-        File outFile = new File(FilenameUtils.concat(FilenameUtils.getFullPath(args.GetOption("access-file")), outputFilename));
+    /**
+     * The name of the output inside a zip archive when using "--compress-output zip".
+     */
+    private static String getEntryName(String extension) {
+        String filename = isStdoutOutput()
+            ? AccessInput.getBaseName(args.GetOption("access-file"))
+            : outputFilename;
+
+        return CompressedOutput.getEntryName(filename, args, extension);
+    }
+
+    /**
+     * The standard output, compressed when "--compress-output" is given.
+     */
+    private static OutputStream getStdout(String extension) throws IOException {
+        OutputStream out = new FileOutputStream(FileDescriptor.out);
+
+        return CompressedOutput.isEnabled(args)
+            ? CompressedOutput.wrap(out, args, getEntryName(extension))
+            : out;
+    }
+
+    /**
+     * Returns an output file next to the Access file, deleting any existing one.
+     */
+    public static File resolveOutputFile(String filename) {
+        File outFile = new File(FilenameUtils.concat(AccessInput.getDirectory(args.GetOption("access-file")), filename));
 
         if (outFile.exists()) {
             try {
                 outFile.delete();
             } catch (SecurityException e) {
-                Error(String.format("Could not delete existing output file '%s'", outputFilename));
+                Error(String.format("Could not delete existing output file '%s'", filename));
                 return null;
             }
         }
@@ -260,6 +626,45 @@ public class AccessConverter {
         return outFile;
     }
 
+    /**
+     * Runs several conversion tasks with a single scan of the database.
+     */
+    private static void RunTasks(Database db, String[] tasks) {
+        FanOutConverter converter = new FanOutConverter(args, db);
+        boolean success = true;
+
+        for (String task : tasks) {
+            task = task.trim();
+
+            if (!converter.addTarget(task)) {
+                targets.add(new TargetRecord(task, "fail", null));
+                success = false;
+            }
+        }
+
+        if (converter.targets.isEmpty()) {
+            return;
+        }
+
+        if (!converter.convert()) {
+            success = false;
+        }
+
+        for (FanOutConverter.Target target : converter.targets) {
+            if (target.failed) {
+                Error(String.format("Could not run task '%s' on '%s'", target.task, args.GetOption("access-file")));
+                targets.add(new TargetRecord(target.task, "fail", null));
+            } else {
+                Log(String.format("Task '%s' created '%s' successfully", target.task, target.outputFilename));
+                targets.add(new TargetRecord(target.task, "success", target.outputFile));
+            }
+        }
+
+        if (success) {
+            result = "success";
+        }
+    }
+
     private static File getTempFile(String scope) {
         try {
             return File.createTempFile("access-converter-" + scope, ".tmp");
@@ -276,8 +681,8 @@ public class AccessConverter {
 
         logFilename = args.HasOption("log-file")
             ? args.GetOption("log-file")
-            : FilenameUtils.getBaseName(args.GetOption("access-file")) + ".log.json";
-        logFile = new File(FilenameUtils.concat(FilenameUtils.getFullPath(args.GetOption("access-file")), logFilename));
+            : AccessInput.getBaseName(args.GetOption("access-file")) + ".log.json";
+        logFile = new File(FilenameUtils.concat(AccessInput.getDirectory(args.GetOption("access-file")), logFilename));
 
         if (logFile.exists()) {
             try {
@@ -328,12 +733,28 @@ public class AccessConverter {
 
         if (outputFile != null) {
             json.add("outputFile", outputFile.getAbsolutePath());
+        } else if (STDOUT.equals(outputFilename)) {
+            json.add("outputFile", STDOUT);
+        }
+
+        if (!tableFiles.isEmpty()) {
+            JsonArrayBuilder jsonTableFiles = Json.createArrayBuilder();
+            tableFiles.forEach((file) -> jsonTableFiles.add(file.getAbsolutePath()));
+            json.add("tableFiles", jsonTableFiles);
         }
 
         if (zipFile != null) {
             json.add("zipFile", zipFile.getAbsolutePath());
         }
 
+        if (!targets.isEmpty()) {
+            JsonArrayBuilder jsonTargets = Json.createArrayBuilder();
+            targets.forEach((target) -> {
+                jsonTargets.add(target.toJsonObject());
+            });
+            json.add("targets", jsonTargets);
+        }
+
         if (!logs.isEmpty()) {
             JsonArrayBuilder jsonLogs = Json.createArrayBuilder();
             logs.forEach((log) -> {
@@ -366,37 +787,108 @@ public class AccessConverter {
         }
     }
 
-    public static void Compress() {
+    /**
+     * Resolves the zip file next to the Access file, deleting any existing one.
+     */
+    private static boolean resolveZipFile() {
         zipFilename = args.HasOption("zip-file")
             ? args.GetOption("zip-file")
-            : FilenameUtils.getBaseName(args.GetOption("access-file")) + ".zip";
-        zipFile = new File(FilenameUtils.concat(FilenameUtils.getFullPath(args.GetOption("access-file")), zipFilename));
+            : AccessInput.getBaseName(args.GetOption("access-file")) + ".zip";
+        zipFile = new File(FilenameUtils.concat(AccessInput.getDirectory(args.GetOption("access-file")), zipFilename));
+        String inputZip = AccessInput.getZipPath(args.GetOption("access-file"));
+
+        if (inputZip != null && new File(inputZip).getAbsoluteFile().equals(zipFile.getAbsoluteFile())) {
+            Error(String.format("The zip file '%s' would overwrite the input archive", zipFilename));
+            zipFile = null;
+            return false;
+        }
 
         if (zipFile.exists()) {
             try {
                 zipFile.delete();
             } catch (SecurityException ex) {
                 Error(String.format("Could not delete existing zip file '%s'", logFilename), ex);
-                return;
+                zipFile = null;
+                return false;
             }
         }
 
-        Map<String, String> env = new HashMap<>() {{
-            put("create", "true");
-        }};
-        URI uri = URI.create(String.format("jar:%s", zipFile.toURI().toString()));
+        return true;
+    }
+
+    private static int getCompressLevel() {
+        try {
+            return Integer.parseInt(args.GetOption("compress-level", String.valueOf(Deflater.DEFAULT_COMPRESSION)));
+        } catch (NumberFormatException e) {
+            Error(String.format("Invalid compression level '%s'", args.GetOption("compress-level")), e);
+            return Deflater.DEFAULT_COMPRESSION;
+        }
+    }
+
+    /**
+     * Opens the output zip archive before the conversion, so the attachment
+     * and OLE files are written into it as they are decoded instead of to the
+     * "-files" directory.
+     */
+    public static void OpenArchive() {
+        if (!resolveZipFile()) {
+            return;
+        }
 
-        try (FileSystem zipfs = FileSystems.newFileSystem(uri, env)) {
-            Path externalTxtFile = Paths.get(outputFile.getAbsolutePath());
-            Path pathInZipfile = zipfs.getPath(String.format("/%s", outputFilename));
-            // copy a file into the zip file
-            Files.copy(externalTxtFile, pathInZipfile, StandardCopyOption.REPLACE_EXISTING);
+        try {
+            archive = new ZipArchive(zipFile, getCompressLevel());
         } catch (IOException ex) {
             Error(String.format("Cannot create ZIP file '%s'", zipFilename), ex);
             zipFile = null;
         }
     }
 
+    public static void Compress() {
+        if (archive == null && !resolveZipFile()) {
+            return;
+        }
+
+        List<File> files = new ArrayList<>();
+
+        if (outputFile != null) {
+            files.add(outputFile);
+        }
+
+        files.addAll(tableFiles);
+
+        targets.stream()
+            .filter((target) -> target.outputFile != null)
+            .forEach((target) -> files.add(target.outputFile));
+
+        int threads = getThreads();
+
+        try {
+            threads = Integer.parseInt(args.GetOption("compress-threads", String.valueOf(threads)));
+        } catch (NumberFormatException e) {
+            Error(String.format("Invalid number of compression threads '%s'", args.GetOption("compress-threads")), e);
+        }
+
+        try (ParallelDeflater deflater = new ParallelDeflater(threads, getCompressLevel())) {
+            if (archive != null) {
+                try (ZipArchive outputArchive = archive) {
+                    archive = null;
+
+                    for (File file : files) {
+                        outputArchive.addFile(file, deflater);
+                    }
+                }
+            } else if (files.size() == 1 && zipFilename.toLowerCase().endsWith(".gz")) {
+                deflater.writeGzip(files.get(0), zipFile);
+            } else {
+                deflater.writeZip(files, zipFile);
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            Error(String.format("Cannot create ZIP file '%s'", zipFilename), ex);
+            zipFile.delete();
+            zipFile = null;
+        }
+    }
+
     public static void Exit() {
         switch (args.GetOption("output-result", "normal")) {
             case "json": {
@@ -414,18 +906,28 @@ public class AccessConverter {
     }
 
     public static void ExitNormal() {
-        System.out.println(String.format("Result: %s", "success".equals(result) ? "Success" : "Failure"));
+        console.println(String.format("Result: %s", "success".equals(result) ? "Success" : "Failure"));
 
         if (outputFile != null) {
-            System.out.println(String.format("Output file: %s", outputFile.getAbsolutePath()));
+            console.println(String.format("Output file: %s", outputFile.getAbsolutePath()));
+        } else if (STDOUT.equals(outputFilename)) {
+            console.println("Output: standard output");
+        }
+
+        for (TargetRecord target : targets) {
+            if (target.outputFile != null) {
+                console.println(String.format("Output file (%s): %s", target.task, target.outputFile.getAbsolutePath()));
+            } else {
+                console.println(String.format("Task %s: Failure", target.task));
+            }
         }
 
         if (logFile != null) {
-            System.out.println(String.format("Log file: %s", logFile.getAbsolutePath()));
+            console.println(String.format("Log file: %s", logFile.getAbsolutePath()));
         }
 
         if (zipFile != null && zipFile.exists()) {
-            System.out.println(String.format("Zip file: %s", zipFile.getAbsolutePath()));
+            console.println(String.format("Zip file: %s", zipFile.getAbsolutePath()));
         }
     }
 
@@ -440,6 +942,22 @@ public class AccessConverter {
 
         if (outputFile != null) {
             json.add("outputFile", outputFile.getAbsolutePath());
+        } else if (STDOUT.equals(outputFilename)) {
+            json.add("outputFile", STDOUT);
+        }
+
+        if (!tableFiles.isEmpty()) {
+            JsonArrayBuilder jsonTableFiles = Json.createArrayBuilder();
+            tableFiles.forEach((file) -> jsonTableFiles.add(file.getAbsolutePath()));
+            json.add("tableFiles", jsonTableFiles);
+        }
+
+        if (!targets.isEmpty()) {
+            JsonArrayBuilder jsonTargets = Json.createArrayBuilder();
+            targets.forEach((target) -> {
+                jsonTargets.add(target.toJsonObject());
+            });
+            json.add("targets", jsonTargets);
         }
 
         if (logFile != null) {
@@ -459,15 +977,15 @@ public class AccessConverter {
                 jsonWriter.write(json.build());
             }
 
-            System.out.println(stringWriter.toString());
+            console.println(stringWriter.toString());
         } else {
-            System.out.print(json.build().toString());
+            console.print(json.build().toString());
         }
     }
 
     public static void debugArgs(String[] args) {
         for (String arg : args) {
-            System.out.println(arg);
+            console.println(arg);
         }
     }
 
@@ -504,6 +1022,30 @@ public class AccessConverter {
         }
     }
 
+    public static class TargetRecord {
+        public String task;
+        public String result;
+        public File outputFile;
+
+        public TargetRecord(String task, String result, File outputFile) {
+            this.task = task;
+            this.result = result;
+            this.outputFile = outputFile;
+        }
+
+        public JsonObjectBuilder toJsonObject() {
+            JsonObjectBuilder json = Json.createObjectBuilder();
+            json.add("task", task);
+            json.add("result", result);
+
+            if (outputFile != null) {
+                json.add("outputFile", outputFile.getAbsolutePath());
+            }
+
+            return json;
+        }
+    }
+
     public static class ErrorRecord extends LogRecord {
         public Exception exception = null;
 
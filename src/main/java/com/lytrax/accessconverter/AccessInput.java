@@ -0,0 +1,256 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2024 Christos Lytras <christos.lytras@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.lytrax.accessconverter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * The Access file given with "--access-file". Besides a regular file it can be
+ * a database inside a zip archive ({@code uploads.zip!db.accdb}, or just
+ * {@code uploads.zip} for the first database in it) or {@code -} for standard
+ * input. Archived and piped databases are staged in memory when they fit in
+ * "--input-memory-limit" megabytes, or in a temporary file otherwise.
+ *
+ * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
+ */
+public class AccessInput implements AutoCloseable {
+    public static final String STDIN = "-";
+    public static final long DEFAULT_MEMORY_LIMIT = 512;
+
+    private static final int CHUNK_SIZE = 1 << 24;
+
+    public final String spec;
+    /**
+     * The file to open, or null when the database is staged in memory.
+     */
+    public File file = null;
+    private boolean isTempFile = false;
+    private final List<byte[]> chunks = new ArrayList<>();
+    private long size = 0;
+
+    private AccessInput(String spec) {
+        this.spec = spec;
+    }
+
+    public static boolean isStdin(String spec) {
+        return STDIN.equals(spec);
+    }
+
+    /**
+     * Returns the archive part of a zip spec, or null if the spec is not a zip.
+     */
+    public static String getZipPath(String spec) {
+        int separator = spec.toLowerCase().indexOf(".zip!");
+
+        if (separator >= 0) {
+            return spec.substring(0, separator + 4);
+        }
+
+        return spec.toLowerCase().endsWith(".zip") ? spec : null;
+    }
+
+    /**
+     * Returns the entry part of a zip spec, or null if it is not given.
+     */
+    public static String getZipEntry(String spec) {
+        int separator = spec.toLowerCase().indexOf(".zip!");
+
+        if (separator < 0) {
+            return null;
+        }
+
+        String entry = spec.substring(separator + 5);
+
+        return entry.startsWith("/") ? entry.substring(1) : entry;
+    }
+
+    /**
+     * The base name the output files are named after.
+     */
+    public static String getBaseName(String spec) {
+        if (isStdin(spec)) {
+            return "stdin";
+        }
+
+        String zipPath = getZipPath(spec);
+        String entry = getZipEntry(spec);
+
+        return FilenameUtils.getBaseName(entry != null ? entry : zipPath != null ? zipPath : spec);
+    }
+
+    /**
+     * The directory the output files are saved in, relative to the working
+     * directory when empty.
+     */
+    public static String getDirectory(String spec) {
+        if (isStdin(spec)) {
+            return "";
+        }
+
+        String zipPath = getZipPath(spec);
+
+        return FilenameUtils.getFullPath(zipPath != null ? zipPath : spec);
+    }
+
+    /**
+     * The absolute directory the output files are saved in.
+     */
+    public static String getAbsoluteDirectory(String spec) {
+        return Paths.get(getDirectory(spec)).toAbsolutePath().normalize().toString();
+    }
+
+    public static AccessInput open(Args args) throws IOException {
+        String spec = args.GetOption("access-file");
+        AccessInput input = new AccessInput(spec);
+        long memoryLimit = Long.parseLong(
+            args.GetOption("input-memory-limit", String.valueOf(DEFAULT_MEMORY_LIMIT))
+        ) * 1024 * 1024;
+
+        if (isStdin(spec)) {
+            input.stage(System.in, memoryLimit);
+            return input;
+        }
+
+        String zipPath = getZipPath(spec);
+
+        if (zipPath == null) {
+            input.file = new File(spec);
+            return input;
+        }
+
+        try (ZipFile zip = new ZipFile(zipPath)) {
+            ZipEntry entry = findEntry(zip, getZipEntry(spec));
+
+            if (entry == null) {
+                throw new IOException(String.format("No Access database found in '%s'", spec));
+            }
+
+            try (InputStream stream = zip.getInputStream(entry)) {
+                input.stage(stream, memoryLimit);
+            }
+        }
+
+        return input;
+    }
+
+    private static ZipEntry findEntry(ZipFile zip, String name) {
+        if (name != null) {
+            return zip.getEntry(name);
+        }
+
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            String extension = FilenameUtils.getExtension(entry.getName()).toLowerCase();
+
+            if (!entry.isDirectory() && (extension.equals("accdb") || extension.equals("mdb"))) {
+                return entry;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads the stream into memory chunks. Once the memory limit is exceeded
+     * the chunks read so far and the rest of the stream go to a temporary file.
+     */
+    private void stage(InputStream stream, long memoryLimit) throws IOException {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        int filled = 0;
+        int count;
+
+        while ((count = stream.read(chunk, filled, chunk.length - filled)) >= 0) {
+            filled += count;
+            size += count;
+
+            if (size > memoryLimit) {
+                spool(stream, chunk, filled);
+                return;
+            }
+
+            if (filled == chunk.length) {
+                chunks.add(chunk);
+                chunk = new byte[CHUNK_SIZE];
+                filled = 0;
+            }
+        }
+
+        if (filled > 0) {
+            byte[] last = new byte[filled];
+            System.arraycopy(chunk, 0, last, 0, filled);
+            chunks.add(last);
+        }
+    }
+
+    private void spool(InputStream stream, byte[] chunk, int filled) throws IOException {
+        file = File.createTempFile("access-converter-input", "." + FilenameUtils.getExtension(getEntryName()));
+        isTempFile = true;
+
+        try (OutputStream output = new FileOutputStream(file)) {
+            for (byte[] staged : chunks) {
+                output.write(staged);
+            }
+
+            chunks.clear();
+            output.write(chunk, 0, filled);
+            stream.transferTo(output);
+        }
+    }
+
+    private String getEntryName() {
+        String entry = getZipEntry(spec);
+        return entry != null ? entry : "input.accdb";
+    }
+
+    /**
+     * Returns a new read-only channel over the database staged in memory.
+     * Every database handle gets its own channel over the same bytes.
+     */
+    public InputChannel newChannel() {
+        return new InputChannel.Memory(chunks, size);
+    }
+
+    @Override
+    public void close() {
+        chunks.clear();
+
+        if (isTempFile && file != null) {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2024 Christos Lytras <christos.lytras@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.lytrax.accessconverter;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.DataType;
+import com.healthmarketscience.jackcess.complex.ComplexDataType;
+import com.healthmarketscience.jackcess.complex.ComplexValueForeignKey;
+import com.healthmarketscience.jackcess.util.OleBlob;
+
+import java.io.IOException;
+
+/**
+ * A table column resolved once into the kind of value it holds,
+ * so the converters don't have to inspect the column type for every cell.
+ *
+ * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
+ */
+public class ColumnCodec {
+    public enum Kind {
+        BYTE,
+        INT,
+        LONG,
+        FLOAT,
+        DOUBLE,
+        DECIMAL,
+        BOOLEAN,
+        DATE_TIME,
+        TEXT,
+        BINARY,
+        OLE,
+        ATTACHMENT,
+        UNSUPPORTED
+    }
+
+    /**
+     * Value returned by {@link #read(Object)} when a column value could not be decoded.
+     */
+    public static class ReadError {
+        public final IOException exception;
+
+        public ReadError(IOException exception) {
+            this.exception = exception;
+        }
+    }
+
+    public final Column column;
+    public final String name;
+    public final int index;
+    public final DataType type;
+    public final Kind kind;
+    public final boolean isAutoNumber;
+
+    public ColumnCodec(Column column, int index) {
+        this.column = column;
+        this.name = column.getName();
+        this.index = index;
+        this.type = column.getType();
+        this.kind = getKind(column);
+        this.isAutoNumber = column.isAutoNumber();
+    }
+
+    public static Kind getKind(Column column) {
+        switch (column.getType()) {
+            case BYTE: {
+                return Kind.BYTE;
+            }
+            case INT: {
+                return Kind.INT;
+            }
+            case LONG: {
+                return Kind.LONG;
+            }
+            case FLOAT: {
+                return Kind.FLOAT;
+            }
+            case DOUBLE: {
+                return Kind.DOUBLE;
+            }
+            case NUMERIC:
+            case MONEY: {
+                return Kind.DECIMAL;
+            }
+            case BOOLEAN: {
+                return Kind.BOOLEAN;
+            }
+            case SHORT_DATE_TIME: {
+                return Kind.DATE_TIME;
+            }
+            case TEXT:
+            case MEMO:
+            case GUID: {
+                return Kind.TEXT;
+            }
+            case BINARY: {
+                return Kind.BINARY;
+            }
+            case OLE: {
+                return Kind.OLE;
+            }
+            case COMPLEX_TYPE: {
+                if (column.getComplexInfo().getType() == ComplexDataType.ATTACHMENT) {
+                    return Kind.ATTACHMENT;
+                }
+
+                return Kind.UNSUPPORTED;
+            }
+            default: {
+                return Kind.UNSUPPORTED;
+            }
+        }
+    }
+
+    /**
+     * Decodes a raw row value to the type of this column.
+     * OLE values are returned as {@link OleBlob} and attachments as a list of
+     * {@link com.healthmarketscience.jackcess.complex.Attachment}.
+     * A {@link ReadError} is returned if the value could not be decoded.
+     */
+    public Object read(Object value) {
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            switch (kind) {
+                case OLE: {
+                    return OleBlob.Builder.fromInternalData((byte[]) value);
+                }
+                case ATTACHMENT: {
+                    return ((ComplexValueForeignKey) value).getAttachments();
+                }
+                case UNSUPPORTED: {
+                    return null;
+                }
+                default: {
+                    return value;
+                }
+            }
+        } catch (IOException e) {
+            return new ReadError(e);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2024 Christos Lytras <christos.lytras@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.lytrax.accessconverter;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * Compression of the JSON and MySQL dump outputs while they are written,
+ * selected with "--compress-output gzip|zip" and "--compress-level". The
+ * compressed file is produced in the same pass as the conversion, so the
+ * uncompressed output is never written to disk.
+ *
+ * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
+ */
+public class CompressedOutput {
+    public static final String GZIP = "gzip";
+    public static final String ZIP = "zip";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public static boolean isEnabled(Args args) {
+        return args.HasOption("compress-output");
+    }
+
+    /**
+     * Returns an error message for invalid compression options, or null.
+     */
+    public static String validate(Args args) {
+        if (!isEnabled(args)) {
+            return null;
+        }
+
+        String format = args.GetOption("compress-output");
+
+        if (!format.equals(GZIP) && !format.equals(ZIP)) {
+            return String.format("Unknown output compression '%s'", format);
+        }
+
+        try {
+            int level = getLevel(args);
+
+            if (level != Deflater.DEFAULT_COMPRESSION && (level < 0 || level > 9)) {
+                return String.format("Invalid compression level '%d'", level);
+            }
+        } catch (NumberFormatException e) {
+            return String.format("Invalid compression level '%s'", args.GetOption("compress-level"));
+        }
+
+        return null;
+    }
+
+    private static int getLevel(Args args) {
+        return Integer.parseInt(args.GetOption("compress-level", String.valueOf(Deflater.DEFAULT_COMPRESSION)));
+    }
+
+    private static String getSuffix(Args args) {
+        return GZIP.equals(args.GetOption("compress-output")) ? ".gz" : ".zip";
+    }
+
+    /**
+     * Adds the extension of the compression format to an output filename,
+     * unless it is already there.
+     */
+    public static String getFilename(String filename, Args args) {
+        if (!isEnabled(args)) {
+            return filename;
+        }
+
+        String suffix = getSuffix(args);
+
+        return filename.toLowerCase().endsWith(suffix) ? filename : filename + suffix;
+    }
+
+    /**
+     * The name of the zip entry for an output file: the output filename
+     * without the compression extension, with the extension of the task.
+     */
+    public static String getEntryName(String filename, Args args, String extension) {
+        String name = FilenameUtils.getName(filename);
+        String suffix = getSuffix(args);
+
+        if (name.toLowerCase().endsWith(suffix)) {
+            name = name.substring(0, name.length() - suffix.length());
+        }
+
+        return FilenameUtils.getBaseName(name) + "." + extension;
+    }
+
+    /**
+     * Wraps a stream with the selected compression. Closing the returned
+     * stream finishes the compressed data and closes the wrapped stream.
+     */
+    public static OutputStream wrap(OutputStream out, Args args, String entryName) throws IOException {
+        int level = getLevel(args);
+
+        if (GZIP.equals(args.GetOption("compress-output"))) {
+            return new GZIPOutputStream(out, BUFFER_SIZE) {{
+                def.setLevel(level);
+            }};
+        }
+
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        zip.setLevel(level);
+        zip.putNextEntry(new ZipEntry(entryName));
+
+        return zip;
+    }
+
+    /**
+     * Opens the writer of a JSON output file.
+     */
+    public static Writer newWriter(File file, Args args, String entryName) throws IOException {
+        if (!isEnabled(args)) {
+            return new FileWriter(file);
+        }
+
+        return new OutputStreamWriter(wrap(new FileOutputStream(file), args, entryName));
+    }
+
+    /**
+     * Opens the writer of a MySQL dump output file.
+     */
+    public static SqlFileWriter newSqlWriter(File file, Args args, String entryName) throws IOException {
+        if (!isEnabled(args)) {
+            return new SqlFileWriter(file);
+        }
+
+        return new SqlFileWriter(wrap(new FileOutputStream(file), args, entryName));
+    }
+}
@@ -23,11 +23,125 @@
  */
 package com.lytrax.accessconverter;
 
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.complex.Attachment;
+import com.healthmarketscience.jackcess.util.OleBlob;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  *
  * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
  */
 public abstract class Converter {
+    private final Map<Column, FileValue> fileValues = new ConcurrentHashMap<>();
+    private DedupIndex dedupIndex = null;
+
+    /**
+     * Gets the file value handler of a column, which is reused for all of its
+     * cells instead of being created for each one.
+     */
+    FileValue getFileValue(Args args, String output, Column column) {
+        return fileValues.computeIfAbsent(column, (key) -> new FileValue(args, output, this));
+    }
+
+    /**
+     * Gets the dedup index of the output of this converter, created when first
+     * used, or null when "-dedup-files" is not used. The records of an output
+     * only reference the copies stored for that same output.
+     */
+    synchronized DedupIndex getDedupIndex() {
+        if (dedupIndex == null) {
+            dedupIndex = AccessConverter.newDedupIndex();
+        }
+
+        return dedupIndex;
+    }
+
+    /**
+     * Uses the dedup index of another converter writing into the same output.
+     */
+    synchronized void shareDedupIndex(Converter converter) {
+        dedupIndex = converter.getDedupIndex();
+    }
+
+    /**
+     * Extracts the attachment and OLE files of a batch before its rows are
+     * converted, keeping the records of each cell in the batch. A batch
+     * passed to several outputs is extracted once by the first, so the files
+     * are written once and every output gets the same records.
+     */
+    void extractFiles(Args args, String output, RowBatch batch) {
+        if (batch.filesExtracted) {
+            return;
+        }
+
+        batch.filesExtracted = true;
+
+        for (int row = 0; row < batch.size; row++) {
+            for (ColumnCodec column : batch.codec.columns) {
+                if (column.kind == ColumnCodec.Kind.OLE || column.kind == ColumnCodec.Kind.ATTACHMENT) {
+                    batch.setFiles(row, column.index, extractFiles(args, output, column, batch, row));
+                }
+            }
+        }
+    }
+
+    private List<FileValue.ValueJsonRecord> extractFiles(Args args, String output, ColumnCodec column, RowBatch batch, int row) {
+        Object value = batch.isNull(row, column.index) ? null : batch.getObject(row, column.index);
+
+        // Unreadable cells are reported by the outputs
+        if (value == null || value instanceof ColumnCodec.ReadError) {
+            return null;
+        }
+
+        var fileValue = getFileValue(args, output, column.column);
+        fileValue.streamInline = streamsInline(column);
+        boolean handled;
+
+        if (column.kind == ColumnCodec.Kind.OLE) {
+            handled = fileValue.handleOle(column.column, batch.getId(row), (OleBlob) value);
+        } else {
+            @SuppressWarnings("unchecked")
+            List<Attachment> attachments = (List<Attachment>) value;
+
+            if (attachments.isEmpty()) {
+                return null;
+            }
+
+            handled = fileValue.handleAttachments(column.column, batch.getId(row), attachments);
+        }
+
+        fileValue.queueWrites(batch, row);
+
+        return handled ? fileValue.records : null;
+    }
+
+    /**
+     * Whether the large inline payloads of a column are read as streams,
+     * which only an output that consumes them while writing can use.
+     */
+    boolean streamsInline(ColumnCodec column) {
+        return false;
+    }
+
+    /**
+     * Waits for the attachment and OLE files of the rows of a batch up to a
+     * row to be written in the background, before the row is converted, so
+     * the records of the files that failed carry the error instead of a path
+     * to a missing file. The writes of the whole batch are queued at once by
+     * {@link #extractFiles}; another output of the batch finds them done.
+     */
+    void awaitFileWrites(RowBatch batch, int row) {
+        FileValue.PendingWrite write;
+
+        while ((write = batch.pendingWrites.peek()) != null && write.row <= row) {
+            batch.pendingWrites.poll();
+            write.await();
+        }
+    }
+
     String logSource(String method) {
         return String.format("%s:%s", this.getClass().getSimpleName(), method);
     }
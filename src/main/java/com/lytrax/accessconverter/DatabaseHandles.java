@@ -0,0 +1,72 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2024 Christos Lytras <christos.lytras@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.lytrax.accessconverter;
+
+import com.healthmarketscience.jackcess.Database;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only database handles for worker threads.
+ * Jackcess databases are not thread safe, so each worker thread that reads
+ * tables in parallel gets its own handle on the Access file.
+ *
+ * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
+ */
+public class DatabaseHandles implements AutoCloseable {
+    private final List<Database> handles = new ArrayList<>();
+    private final ThreadLocal<Database> threadHandle = new ThreadLocal<>();
+
+    public Database get() throws IOException {
+        Database db = threadHandle.get();
+
+        if (db == null) {
+            db = AccessConverter.openDatabase();
+            threadHandle.set(db);
+
+            synchronized (handles) {
+                handles.add(db);
+            }
+        }
+
+        return db;
+    }
+
+    @Override
+    public void close() {
+        synchronized (handles) {
+            for (Database db : handles) {
+                try {
+                    db.close();
+                } catch (IOException e) {
+                    AccessConverter.Error("Could not close database handle", e);
+                }
+            }
+
+            handles.clear();
+        }
+    }
+}
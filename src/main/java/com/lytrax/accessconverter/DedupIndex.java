@@ -0,0 +1,151 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2024 Christos Lytras <christos.lytras@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.lytrax.accessconverter;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Index of the attachment and OLE payloads already written, keyed by the
+ * SHA-256 hash of their content, so identical payloads are stored once and
+ * the later records reference the first copy. The index keeps the most
+ * recently used hashes up to its size; a payload whose hash was evicted is
+ * simply stored again.
+ * <p>
+ * A payload is claimed by the first record that finds it missing, and only
+ * enters the index once its copy is stored, so no record references a copy
+ * that failed to be written. Records of the same payload wait for the copy
+ * that is being stored, instead of storing it again.
+ *
+ * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
+ */
+public class DedupIndex {
+    public static final int DEFAULT_SIZE = 100000;
+
+    private final Map<String, String> paths;
+    private final Map<String, CompletableFuture<Void>> pending = new HashMap<>();
+    private long duplicates = 0;
+    private long bytesSaved = 0;
+
+    public DedupIndex(int size) {
+        paths = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > size;
+            }
+        };
+    }
+
+    public static String hash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the path the payload with this hash was stored at, counting the
+     * bytes saved, or null if the caller claimed the payload and has to store
+     * it, then call {@link #stored} or {@link #failed}. If the payload is
+     * being stored by another record, waits for it first.
+     */
+    public String claim(String hash, long size) {
+        while (true) {
+            CompletableFuture<Void> copy;
+
+            synchronized (this) {
+                String path = paths.get(hash);
+
+                if (path != null) {
+                    duplicates++;
+                    bytesSaved += size;
+
+                    return path;
+                }
+
+                copy = pending.get(hash);
+
+                if (copy == null) {
+                    pending.put(hash, new CompletableFuture<>());
+
+                    return null;
+                }
+            }
+
+            copy.join();
+        }
+    }
+
+    /**
+     * Adds a claimed payload once its copy is stored.
+     */
+    public void stored(String hash, String path) {
+        CompletableFuture<Void> copy;
+
+        synchronized (this) {
+            paths.put(hash, path);
+            copy = pending.remove(hash);
+        }
+
+        if (copy != null) {
+            copy.complete(null);
+        }
+    }
+
+    /**
+     * Releases a claimed payload whose copy could not be stored, so the next
+     * record of it claims it again.
+     */
+    public void failed(String hash) {
+        CompletableFuture<Void> copy;
+
+        synchronized (this) {
+            copy = pending.remove(hash);
+        }
+
+        if (copy != null) {
+            copy.complete(null);
+        }
+    }
+
+    public synchronized long getDuplicates() {
+        return duplicates;
+    }
+
+    public synchronized long getBytesSaved() {
+        return bytesSaved;
+    }
+}
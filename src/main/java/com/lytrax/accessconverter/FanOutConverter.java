@@ -0,0 +1,298 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2024 Christos Lytras <christos.lytras@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.lytrax.accessconverter;
+
+import com.healthmarketscience.jackcess.Database;
+import com.healthmarketscience.jackcess.Table;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * Converts a database to several outputs with a single scan: every table is
+ * read once and each decoded row batch is passed to all the requested outputs,
+ * with the attachment and OLE files of the batch extracted once for all of them.
+ * A failing output is dropped without affecting the others.
+ *
+ * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
+ */
+public class FanOutConverter extends Converter {
+    public class Target {
+        public String task;
+        public String outputFilename;
+        public File outputFile;
+        public File tempFile = null;
+        public AutoCloseable writer = null;
+        public TableSink sink;
+        public boolean failed = false;
+        private boolean skipTable = false;
+
+        public Target(String task) {
+            this.task = task;
+        }
+    }
+
+    public Database db;
+    public Args args;
+    public List<Target> targets = new ArrayList<>();
+
+    public FanOutConverter(Args args, Database db) {
+        this.args = args;
+        this.db = db;
+    }
+
+    public static String getExtension(String task) {
+        return switch (task) {
+            case "convert-json" -> "json";
+            case "convert-ndjson" -> "ndjson";
+            case "convert-mysql-dump" -> "sql";
+            case "convert-sqlite" -> "sqlite3";
+            default -> null;
+        };
+    }
+
+    /**
+     * Adds an output for a conversion task. The output file is named after the
+     * output file option, or the Access file, with the extension of the task.
+     * Returns false for unknown tasks or when the output could not be created.
+     */
+    public boolean addTarget(String task) {
+        final String methodName = "addTarget";
+        String extension = getExtension(task);
+
+        if (extension == null) {
+            Error(String.format("No valid task given '%s'", task), null, methodName);
+            return false;
+        }
+
+        Target target = new Target(task);
+        target.outputFilename = (args.HasOption("output-file")
+            ? FilenameUtils.getBaseName(args.GetOption("output-file"))
+            : AccessInput.getBaseName(args.GetOption("access-file"))
+        ) + "." + extension;
+
+        if (!task.equals("convert-sqlite")) {
+            target.outputFilename = CompressedOutput.getFilename(target.outputFilename, args);
+        }
+
+        target.outputFile = AccessConverter.resolveOutputFile(target.outputFilename);
+
+        if (target.outputFile == null) {
+            return false;
+        }
+
+        try {
+            switch (task) {
+                case "convert-json": {
+                    target.tempFile = File.createTempFile("access-converter-" + Globals.OUTPUT_JSON, ".tmp");
+                    Writer writer = CompressedOutput.newWriter(
+                        target.tempFile, args, CompressedOutput.getEntryName(target.outputFilename, args, extension)
+                    );
+                    target.writer = writer;
+                    target.sink = new JSONConverter(args, db, writer);
+                    break;
+                }
+                case "convert-ndjson": {
+                    target.tempFile = File.createTempFile("access-converter-" + Globals.OUTPUT_JSON, ".tmp");
+                    Writer writer = CompressedOutput.newWriter(
+                        target.tempFile, args, CompressedOutput.getEntryName(target.outputFilename, args, extension)
+                    );
+                    JSONConverter converter = new JSONConverter(args, db, writer);
+                    converter.isNdjson = true;
+                    target.writer = writer;
+                    target.sink = converter;
+                    break;
+                }
+                case "convert-mysql-dump": {
+                    target.tempFile = File.createTempFile("access-converter-" + Globals.OUTPUT_MYSQL, ".tmp");
+                    SqlFileWriter writer = CompressedOutput.newSqlWriter(
+                        target.tempFile, args, CompressedOutput.getEntryName(target.outputFilename, args, extension)
+                    );
+                    target.writer = writer;
+                    target.sink = new MySQLConverter(args, db, writer);
+                    break;
+                }
+                case "convert-sqlite": {
+                    target.sink = new SQLiteConverter(args, db, target.outputFile);
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            Error(String.format("Could not create the output of task '%s'", task), e, methodName);
+
+            if (target.tempFile != null) {
+                target.tempFile.delete();
+            }
+
+            return false;
+        }
+
+        targets.add(target);
+
+        return true;
+    }
+
+    /**
+     * Runs the conversion. Returns true if every target succeeded.
+     */
+    public boolean convert() {
+        final String methodName = "convert";
+
+        for (Target target : targets) {
+            if (!target.sink.open()) {
+                target.failed = true;
+            }
+        }
+
+        try {
+            Set<String> tableNames = db.getTableNames();
+
+            for (String tableName : tableNames) {
+                try {
+                    addTable(db.getTable(tableName));
+                } catch (IOException e) {
+                    Error(String.format("Could not load table '%s'", tableName), e, methodName);
+                }
+            }
+
+            AccessConverter.progressStatus.resetLine();
+        } catch (IOException e) {
+            Error("Could not fetch tables from the database", e, methodName);
+
+            for (Target target : targets) {
+                target.failed = true;
+            }
+        }
+
+        boolean result = true;
+
+        for (Target target : targets) {
+            if (!finish(target)) {
+                result = false;
+            }
+        }
+
+        return result;
+    }
+
+    private void addTable(Table table) throws IOException {
+        AccessConverter.progressStatus.startTable(table);
+
+        boolean hasRows = false;
+
+        for (Target target : targets) {
+            target.skipTable = true;
+
+            if (!target.failed) {
+                try {
+                    target.skipTable = !target.sink.startTable(table);
+                    hasRows |= !target.skipTable;
+                } catch (IOException | RuntimeException e) {
+                    fail(target, e);
+                }
+            }
+        }
+
+        if (hasRows && table.getRowCount() > 0) {
+            try (RowSource source = RowSource.open(args, new TableCodec(table))) {
+                RowBatch batch;
+
+                while ((batch = source.next()) != null) {
+                    // The files are extracted once, and every output gets the same records
+                    extractFiles(args, Globals.OUTPUT_JSON, batch);
+
+                    for (Target target : targets) {
+                        if (!target.failed && !target.skipTable) {
+                            try {
+                                target.sink.addRows(batch);
+                            } catch (IOException | RuntimeException e) {
+                                fail(target, e);
+                            }
+                        }
+                    }
+
+                    AccessConverter.progressStatus.step(batch.size);
+                    source.release(batch);
+                }
+            } catch (IOException e) {
+                Error(String.format("Could not read data of table '%s'", table.getName()), e, "addTable");
+            }
+        }
+
+        for (Target target : targets) {
+            if (!target.failed && !target.skipTable) {
+                try {
+                    target.sink.endTable(table);
+                } catch (IOException | RuntimeException e) {
+                    fail(target, e);
+                }
+            }
+        }
+
+        AccessConverter.progressStatus.endTable();
+    }
+
+    private void fail(Target target, Exception e) {
+        Error(String.format("Could not write the output of task '%s'", target.task), e, "fail");
+        target.failed = true;
+    }
+
+    /**
+     * Closes the output of a target and moves it to its output file.
+     */
+    private boolean finish(Target target) {
+        final String methodName = "finish";
+        // Close even a failed output, so its resources are released
+        boolean result = target.sink.close() && !target.failed;
+
+        try {
+            if (target.writer != null) {
+                target.writer.close();
+            }
+        } catch (Exception e) {
+            Error(String.format("Could not close the output of task '%s'", target.task), e, methodName);
+            result = false;
+        }
+
+        if (target.tempFile != null) {
+            if (result) {
+                target.tempFile.renameTo(target.outputFile);
+            }
+
+            if (target.tempFile.exists()) {
+                target.tempFile.delete();
+            }
+        }
+
+        target.failed = !result;
+
+        return result;
+    }
+}
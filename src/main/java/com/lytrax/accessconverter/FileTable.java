@@ -0,0 +1,156 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2024 Christos Lytras <christos.lytras@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.lytrax.accessconverter;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.Index;
+import com.healthmarketscience.jackcess.Table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A companion table of an attachment or OLE column, used with "-files-tables".
+ * Each file of a row is stored in its own row of the companion table, keyed by
+ * the primary key of the parent row and the position of the file, with its
+ * data in a binary column when the files are stored inline; the other files
+ * modes store the path or only the reference, without the data column. The
+ * parent column holds only the number of files.
+ *
+ * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
+ */
+public class FileTable {
+    public static final List<String> FILE_COLUMNS = Arrays.asList(
+        "position", "file_name", "file_type", "file_size", "file_hash", "file_path"
+    );
+    public static final String DATA_COLUMN = "file_data";
+
+    public final Table table;
+    public final Column column;
+    public final String name;
+    public final List<Column> keyColumns;
+    /**
+     * The indexes of the key columns in the rows of the parent table.
+     */
+    public final int[] keyIndexes;
+    /**
+     * Whether the table has the data column, only with "--files-mode inline".
+     */
+    public final boolean withData;
+
+    public FileTable(Table table, Column column, List<Column> keyColumns, boolean withData) {
+        this.table = table;
+        this.column = column;
+        this.name = String.format("%s_%s", table.getName(), column.getName());
+        this.keyColumns = keyColumns;
+        this.keyIndexes = new int[keyColumns.size()];
+        this.withData = withData;
+
+        for (int i = 0; i < keyIndexes.length; i++) {
+            keyIndexes[i] = table.getColumns().indexOf(keyColumns.get(i));
+        }
+    }
+
+    /**
+     * Gets the companion tables of the attachment and OLE columns of a table,
+     * by the name of their column. A table without a primary key has none,
+     * since its rows could not be referenced, and keeps the JSON records.
+     */
+    public static Map<String, FileTable> resolve(Args args, Table table) {
+        Map<String, FileTable> fileTables = new LinkedHashMap<>();
+
+        if (!args.HasFlag("files-tables")) {
+            return fileTables;
+        }
+
+        List<Column> keyColumns = getPrimaryKeyColumns(table);
+        var withData = args.GetOption("files-mode").equals("inline");
+
+        for (Column column : table.getColumns()) {
+            var kind = ColumnCodec.getKind(column);
+
+            if (kind != ColumnCodec.Kind.OLE && kind != ColumnCodec.Kind.ATTACHMENT) {
+                continue;
+            }
+
+            if (keyColumns.isEmpty()) {
+                AccessConverter.Log(
+                    String.format(
+                        "Table '%s' has no primary key, storing the files of column '%s' as JSON records",
+                        table.getName(), column.getName()
+                    ),
+                    "FileTable:resolve"
+                );
+                continue;
+            }
+
+            fileTables.put(column.getName(), new FileTable(table, column, keyColumns, withData));
+        }
+
+        return fileTables;
+    }
+
+    private static List<Column> getPrimaryKeyColumns(Table table) {
+        List<Column> keyColumns = new ArrayList<>();
+
+        for (Index index : table.getIndexes()) {
+            if (index.isPrimaryKey()) {
+                for (Index.Column indexColumn : index.getColumns()) {
+                    keyColumns.add(indexColumn.getColumn());
+                }
+
+                break;
+            }
+        }
+
+        return keyColumns;
+    }
+
+    /**
+     * Gets the names of the key columns followed by the file columns.
+     */
+    public List<String> getColumnNames() {
+        List<String> names = getKeyColumnNames();
+        names.addAll(FILE_COLUMNS);
+
+        if (withData) {
+            names.add(DATA_COLUMN);
+        }
+
+        return names;
+    }
+
+    public List<String> getKeyColumnNames() {
+        List<String> names = new ArrayList<>();
+
+        for (Column keyColumn : keyColumns) {
+            names.add(keyColumn.getName());
+        }
+
+        return names;
+    }
+}
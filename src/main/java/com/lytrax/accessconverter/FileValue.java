@@ -23,32 +23,36 @@
  */
 package com.lytrax.accessconverter;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringReader;
-import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 import javax.json.Json;
 import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+import javax.json.stream.JsonGenerator;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
 import com.healthmarketscience.jackcess.Column;
-import com.healthmarketscience.jackcess.Row;
+import com.healthmarketscience.jackcess.RowId;
 import com.healthmarketscience.jackcess.complex.Attachment;
 import com.healthmarketscience.jackcess.util.OleBlob;
 import com.healthmarketscience.jackcess.util.OleBlob.SimplePackageContent;
@@ -60,6 +64,7 @@ import com.healthmarketscience.jackcess.util.OleBlob.SimplePackageContent;
 public class FileValue {
     public static final String SCOPE_ATTACHMENTS = "attachments";
     public static final String SCOPE_OLE = "ole";
+    public static final long DEFAULT_INLINE_STREAM_SIZE = 1024;
 
     class FileAlreadyExistsException extends Exception {
         public FileAlreadyExistsException(String errorMessage) {
@@ -79,6 +84,12 @@ public class FileValue {
         public Long size;
         public String message;
         public String messageSeverity;
+        public String hash;
+        /**
+         * The inline data of a large payload, Base64 encoded straight to the
+         * output by {@link FileValue#writeRecordsSql}.
+         */
+        public InputStream dataStream;
 
         public ValueJsonRecord() {}
 
@@ -126,38 +137,201 @@ public class FileValue {
         }
     }
 
-    public static class ValueJsonRecordAdapter implements JsonSerializer<ValueJsonRecord> {
-        @Override
-        public JsonElement serialize(ValueJsonRecord src, Type typeOfSrc, JsonSerializationContext context) {
-            JsonObject obj = new JsonObject();
+    /**
+     * Serializes records to JSON text the way Gson does by default, escaping
+     * the HTML characters, or straight into a JSON generator or builder. The
+     * text buffer is reused from cell to cell.
+     */
+    static class ValueJsonRecordWriter {
+        private static final String[] REPLACEMENTS = new String[128];
+
+        static {
+            for (int i = 0; i < 0x20; i++) {
+                REPLACEMENTS[i] = String.format("\\u%04x", i);
+            }
+
+            REPLACEMENTS['"'] = "\\\"";
+            REPLACEMENTS['\\'] = "\\\\";
+            REPLACEMENTS['\t'] = "\\t";
+            REPLACEMENTS['\b'] = "\\b";
+            REPLACEMENTS['\n'] = "\\n";
+            REPLACEMENTS['\r'] = "\\r";
+            REPLACEMENTS['\f'] = "\\f";
+            REPLACEMENTS['<'] = "\\u003c";
+            REPLACEMENTS['>'] = "\\u003e";
+            REPLACEMENTS['&'] = "\\u0026";
+            REPLACEMENTS['='] = "\\u003d";
+            REPLACEMENTS['\''] = "\\u0027";
+        }
 
-            obj.addProperty("name", src.name);
-            obj.addProperty("type", src.type);
+        public final StringBuilder buffer = new StringBuilder();
 
-            if (src.size != null) {
-                obj.addProperty("size", src.size);
+        /**
+         * Appends the JSON object of a record to the buffer, optionally
+         * without its data and closing brace.
+         */
+        public void append(ValueJsonRecord record, boolean withData) {
+            int start = buffer.length();
+
+            buffer.append('{');
+            appendProperty(start, "name", record.name);
+            appendProperty(start, "type", record.type);
+
+            if (record.size != null) {
+                appendName(start, "size").append(record.size.longValue());
             }
 
-            if (src.path != null) {
-                obj.addProperty("path", src.path);
+            appendProperty(start, "hash", record.hash);
+            appendProperty(start, "path", record.path);
+
+            if (record.isRelativePath != null) {
+                appendName(start, "isRelativePath").append(record.isRelativePath.booleanValue());
             }
 
-            if (src.isRelativePath != null) {
-                obj.addProperty("isRelativePath", src.isRelativePath);
+            if (record.message != null) {
+                appendProperty(start, record.messageSeverity != null ? record.messageSeverity : "info", record.message);
             }
 
-            if (src.message != null) {
-                obj.addProperty(
-                    src.messageSeverity != null ? src.messageSeverity : "info",
-                    src.message
-                );
+            if (withData) {
+                if (record.data != null) {
+                    appendProperty(start, "data", Base64.getEncoder().encodeToString(record.data));
+                }
+
+                buffer.append('}');
+            }
+        }
+
+        public void append(List<ValueJsonRecord> records) {
+            buffer.append('[');
+
+            for (int i = 0; i < records.size(); i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+
+                append(records.get(i), true);
+            }
+
+            buffer.append(']');
+        }
+
+        private void appendProperty(int start, String name, String value) {
+            if (value != null) {
+                appendString(appendName(start, name), value);
+            }
+        }
+
+        private StringBuilder appendName(int start, String name) {
+            if (buffer.length() > start + 1) {
+                buffer.append(',');
             }
 
-            if (src.data != null) {
-                obj.addProperty("data", Base64.getEncoder().encodeToString(src.data));
+            return appendString(buffer, name).append(':');
+        }
+
+        private static StringBuilder appendString(StringBuilder out, String value) {
+            int length = value.length();
+            int last = 0;
+
+            out.append('"');
+
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                String replacement;
+
+                if (c < 128) {
+                    replacement = REPLACEMENTS[c];
+                } else if (c == '\u2028') {
+                    replacement = "\\u2028";
+                } else if (c == '\u2029') {
+                    replacement = "\\u2029";
+                } else {
+                    continue;
+                }
+
+                if (replacement != null) {
+                    out.append(value, last, i).append(replacement);
+                    last = i + 1;
+                }
             }
 
-            return obj;
+            return out.append(value, last, length).append('"');
+        }
+
+        public static JsonObjectBuilder toJsonObject(ValueJsonRecord record) {
+            var json = Json.createObjectBuilder();
+
+            if (record.name != null) {
+                json.add("name", record.name);
+            }
+
+            if (record.type != null) {
+                json.add("type", record.type);
+            }
+
+            if (record.size != null) {
+                json.add("size", record.size);
+            }
+
+            if (record.hash != null) {
+                json.add("hash", record.hash);
+            }
+
+            if (record.path != null) {
+                json.add("path", record.path);
+            }
+
+            if (record.isRelativePath != null) {
+                json.add("isRelativePath", record.isRelativePath);
+            }
+
+            if (record.message != null) {
+                json.add(record.messageSeverity != null ? record.messageSeverity : "info", record.message);
+            }
+
+            if (record.data != null) {
+                json.add("data", Base64.getEncoder().encodeToString(record.data));
+            }
+
+            return json;
+        }
+
+        public static void write(JsonGenerator generator, ValueJsonRecord record) {
+            generator.writeStartObject();
+
+            if (record.name != null) {
+                generator.write("name", record.name);
+            }
+
+            if (record.type != null) {
+                generator.write("type", record.type);
+            }
+
+            if (record.size != null) {
+                generator.write("size", record.size);
+            }
+
+            if (record.hash != null) {
+                generator.write("hash", record.hash);
+            }
+
+            if (record.path != null) {
+                generator.write("path", record.path);
+            }
+
+            if (record.isRelativePath != null) {
+                generator.write("isRelativePath", record.isRelativePath);
+            }
+
+            if (record.message != null) {
+                generator.write(record.messageSeverity != null ? record.messageSeverity : "info", record.message);
+            }
+
+            if (record.data != null) {
+                generator.write("data", Base64.getEncoder().encodeToString(record.data));
+            }
+
+            generator.writeEnd();
         }
     }
 
@@ -169,7 +343,81 @@ public class FileValue {
     public Boolean onlyReference;
     public Boolean saveToAbsolutePath;
     public Boolean overwriteExistingFiles;
+    /**
+     * The output archive the files are written into instead of the
+     * filesystem, when "-compress" is used.
+     */
+    public ZipArchive archive;
+    /**
+     * The index of the payloads already stored in the output of the
+     * converter, when "-dedup-files" is used.
+     */
+    public DedupIndex dedupIndex;
+    /**
+     * The background writer of the files, when "-async-files" is used.
+     */
+    public AsyncFileSink fileSink;
+    private List<PendingWrite> pendingWrites = new ArrayList<>();
+    /**
+     * Whether the output streams large inline payloads, see {@link #writeRecordsSql}.
+     */
+    public boolean streamInline = false;
+    public long inlineStreamSize;
+
+    private static final Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
+
+    /**
+     * A file being written in the background, with the record written for it
+     * by its index in the records of its cell.
+     */
+    static class PendingWrite {
+        public String path;
+        public List<ValueJsonRecord> records;
+        public int index;
+        public Future<Void> future;
+        public int row;
+
+        public PendingWrite(String path, List<ValueJsonRecord> records, int index, Future<Void> future) {
+            this.path = path;
+            this.records = records;
+            this.index = index;
+            this.future = future;
+        }
+
+        /**
+         * Waits for the file to be written. If it failed, its record is
+         * replaced by the error, or the warning of an existing file, as when
+         * the file is written directly.
+         */
+        public void await() {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(String.format("Interrupted while writing file '%s'", path), ValueJsonRecord.MESSAGE_ERROR);
+            } catch (ExecutionException e) {
+                var error = e.getCause() != null ? e.getCause() : e;
+
+                fail(
+                    error.getMessage(),
+                    error instanceof FileAlreadyExistsException
+                        ? ValueJsonRecord.MESSAGE_WARNING
+                        : ValueJsonRecord.MESSAGE_ERROR
+                );
+            }
+        }
+
+        private void fail(String message, String messageSeverity) {
+            var record = records.get(index);
+            records.set(index, new ValueJsonRecord(record.name, record.type, message, messageSeverity));
+        }
+    }
+    /**
+     * The records of the last cell handled, a new list for every cell so it
+     * can be kept with the batch, see {@link Converter#extractFiles}.
+     */
     public List<ValueJsonRecord> records = new ArrayList<>();
+    private final ValueJsonRecordWriter recordWriter = new ValueJsonRecordWriter();
 
     public FileValue(Args args, String output, Converter converter) {
         this.args = args;
@@ -180,6 +428,17 @@ public class FileValue {
         this.onlyReference = args.GetOption("files-mode").equals("reference");
         this.saveToAbsolutePath = args.GetOption("files-mode").endsWith("absolute");
         this.overwriteExistingFiles = args.GetFlag("overwrite-existing-files");
+        this.archive = saveToFilesystem ? AccessConverter.archive : null;
+        this.dedupIndex = onlyReference ? null : converter.getDedupIndex();
+        this.fileSink = saveToFilesystem && archive == null ? AccessConverter.fileSink : null;
+
+        try {
+            this.inlineStreamSize = Long.parseLong(
+                args.GetOption("inline-stream-size", String.valueOf(DEFAULT_INLINE_STREAM_SIZE))
+            ) * 1024;
+        } catch (NumberFormatException e) {
+            this.inlineStreamSize = DEFAULT_INLINE_STREAM_SIZE * 1024;
+        }
 
         if (!saveToFilesystem && !storeInline && !onlyReference) {
             this.onlyReference = true;
@@ -187,19 +446,17 @@ public class FileValue {
     }
 
     private String getGetAbsoluteRootPath() {
-        File dbFile = new File(args.GetOption("access-file"));
-        return Paths.get(dbFile.getAbsolutePath()).normalize().getParent().toString();
+        return AccessInput.getAbsoluteDirectory(args.GetOption("access-file"));
     }
 
-    public Boolean handleAttachments(Column column, Row row, List<Attachment> attachments) {
+    public Boolean handleAttachments(Column column, RowId rowId, List<Attachment> attachments) {
         var tableName = column.getTable().getName();
         var columnName = column.getName();
-        var rowId = row.getId();
-        var baseName = FilenameUtils.getBaseName(args.GetOption("access-file")) + "-files";
+        var baseName = AccessInput.getBaseName(args.GetOption("access-file")) + "-files";
         var basePath = Paths.get(baseName, tableName, columnName, SCOPE_ATTACHMENTS);
         var absoluteRootPath = getGetAbsoluteRootPath();
 
-        records.clear();
+        records = new ArrayList<>();
 
         if (!createFilesPath(absoluteRootPath, basePath)) {
             return false;
@@ -210,24 +467,56 @@ public class FileValue {
             var fileBaseName = FilenameUtils.getBaseName(name);
             var fileExtension = FilenameUtils.getExtension(name);
             var type = attachment.getFileType();
+            String claimed = null;
 
             try {
+                if (onlyReference) {
+                    // Only the size is needed, which the encoded data header gives without decoding it
+                    records.add(new ValueJsonRecord(name, type, null, getEncodedFileSize(attachment.getEncodedFileData())));
+                    continue;
+                }
+
                 var data = attachment.getFileData();
                 var filename = String.format("%s-[%s].%s", fileBaseName, rowId.hashCode(), fileExtension);
                 var relativePath = Paths.get(basePath.toString(), filename);
                 var absolutePath = Paths.get(absoluteRootPath.toString(), relativePath.toString());
+                var hash = dedupIndex != null ? DedupIndex.hash(data) : null;
+                var duplicate = findDuplicate(name, type, hash, data.length);
+
+                if (duplicate != null) {
+                    records.add(duplicate);
+                    continue;
+                }
+
+                claimed = hash;
+
+                if (archive != null) {
+                    var entryName = FilenameUtils.separatorsToUnix(relativePath.toString());
+                    saveArchiveEntry(entryName, new ByteArrayInputStream(data));
+                    records.add(new ValueJsonRecord(name, type, entryName, true, Long.valueOf(data.length)));
+                } else if (saveToFilesystem) {
+                    var path = saveToAbsolutePath ? absolutePath.toString() : relativePath.toString();
+
+                    if (fileSink != null) {
+                        submitWrite(relativePath.toString(), claimed, path, () -> saveFileData(absolutePath.toString(), relativePath.toString(), data));
+                        claimed = null;
+                    } else {
+                        saveFileData(absolutePath.toString(), relativePath.toString(), data);
+                    }
 
-                if (saveToFilesystem) {
-                    saveFileData(absolutePath.toString(), relativePath.toString(), data);
                     records.add(
                         new ValueJsonRecord(
                             name,
                             type,
-                            saveToAbsolutePath ? absolutePath.toString() : relativePath.toString(),
+                            path,
                             saveToAbsolutePath,
                             Long.valueOf(data.length)
                         )
                     );
+                } else if (storeInline && streamInline && data.length > inlineStreamSize) {
+                    var record = new ValueJsonRecord(name, type, (byte[]) null, Long.valueOf(data.length));
+                    record.dataStream = new ByteArrayInputStream(data);
+                    records.add(record);
                 } else if (storeInline) {
                     records.add(
                         new ValueJsonRecord(
@@ -247,26 +536,31 @@ public class FileValue {
                         )
                     );
                 }
+
+                addToIndex(hash, claimed, records.get(records.size() - 1));
+                claimed = null;
             } catch (IOException | SecurityException e) {
                 records.add(new ValueJsonRecord(name, type, e.getMessage(), ValueJsonRecord.MESSAGE_ERROR));
             } catch (FileAlreadyExistsException e) {
                 records.add(new ValueJsonRecord(name, type, e.getMessage(), ValueJsonRecord.MESSAGE_WARNING));
+            } finally {
+                releaseClaim(claimed);
             }
         }
 
         return true;
     }
 
-    public Boolean handleOle(Column column, Row row, OleBlob oleBlob) {
+    public Boolean handleOle(Column column, RowId rowId, OleBlob oleBlob) {
         var tableName = column.getTable().getName();
         var columnName = column.getName();
-        var rowId = row.getId();
-        var baseName = FilenameUtils.getBaseName(args.GetOption("access-file")) + "-files";
+        var baseName = AccessInput.getBaseName(args.GetOption("access-file")) + "-files";
         var basePath = Paths.get(baseName, tableName, columnName, SCOPE_OLE);
         var absoluteRootPath = getGetAbsoluteRootPath();
         String name = "<unprocessed>";
+        String claimed = null;
 
-        records.clear();
+        records = new ArrayList<>();
 
         if (!createFilesPath(absoluteRootPath, basePath)) {
             return false;
@@ -294,22 +588,60 @@ public class FileValue {
             var fileBaseName = FilenameUtils.getBaseName(name);
             var fileExtension = FilenameUtils.getExtension(name);
 
+            if (onlyReference) {
+                records.add(new ValueJsonRecord(name, null, content.length()));
+                return true;
+            }
+
             var data = content.getStream();
             var filename = String.format("%s-[%s].%s", fileBaseName, rowId.hashCode(), fileExtension);
             var relativePath = Paths.get(basePath.toString(), filename);
             var absolutePath = Paths.get(absoluteRootPath.toString(), relativePath.toString());
+            String hash = null;
+
+            if (dedupIndex != null) {
+                var bytes = data.readAllBytes();
+                hash = DedupIndex.hash(bytes);
+                data = new ByteArrayInputStream(bytes);
+                var duplicate = findDuplicate(name, null, hash, bytes.length);
+
+                if (duplicate != null) {
+                    records.add(duplicate);
+                    return true;
+                }
+
+                claimed = hash;
+            }
+
+            if (archive != null) {
+                var entryName = FilenameUtils.separatorsToUnix(relativePath.toString());
+                saveArchiveEntry(entryName, data);
+                records.add(new ValueJsonRecord(name, null, entryName, true, content.length()));
+            } else if (saveToFilesystem) {
+                var path = saveToAbsolutePath ? absolutePath.toString() : relativePath.toString();
+
+                if (fileSink != null) {
+                    // Read the payload here, as the blob is not safe to use from another thread
+                    var bytes = data.readAllBytes();
+                    submitWrite(relativePath.toString(), claimed, path, () -> saveFileData(absolutePath.toString(), relativePath.toString(), bytes));
+                    claimed = null;
+                } else {
+                    saveFileStream(absolutePath.toString(), relativePath.toString(), data);
+                }
 
-            if (saveToFilesystem) {
-                saveFileStream(absolutePath.toString(), relativePath.toString(), data);
                 records.add(
                     new ValueJsonRecord(
                         name,
                         null,
-                        saveToAbsolutePath ? absolutePath.toString() : relativePath.toString(),
+                        path,
                         saveToAbsolutePath,
                         content.length()
                     )
                 );
+            } else if (storeInline && streamInline && content.length() > inlineStreamSize) {
+                var record = new ValueJsonRecord(name, null, (byte[]) null, content.length());
+                record.dataStream = data;
+                records.add(record);
             } else if (storeInline) {
                 records.add(
                     new ValueJsonRecord(
@@ -328,19 +660,126 @@ public class FileValue {
                     )
                 );
             }
+
+            addToIndex(hash, claimed, records.get(records.size() - 1));
+            claimed = null;
         } catch (IOException | SecurityException e) {
             records.add(new ValueJsonRecord(name, null, e.getMessage(), ValueJsonRecord.MESSAGE_ERROR));
         } catch (FileAlreadyExistsException e) {
             records.add(new ValueJsonRecord(name, null, e.getMessage(), ValueJsonRecord.MESSAGE_WARNING));
+        } finally {
+            releaseClaim(claimed);
         }
 
         return true;
     }
 
+    /**
+     * Returns the size of an attachment from its encoded data, which starts
+     * with the data type (raw or deflated) and the length of the content; the
+     * content starts with the length of its own header, which precedes the
+     * file data. At most the first bytes of deflated content are inflated.
+     */
+    static long getEncodedFileSize(byte[] encoded) throws IOException {
+        if (encoded.length < 12) {
+            throw new IOException("Unknown encoded attachment data format");
+        }
+
+        var buffer = ByteBuffer.wrap(encoded).order(ByteOrder.LITTLE_ENDIAN);
+        var dataType = buffer.getInt();
+        var dataLength = buffer.getInt();
+        var header = new byte[4];
+
+        if (dataType == 0) {
+            buffer.get(header);
+        } else if (dataType == 1) {
+            var inflater = new Inflater();
+
+            try {
+                inflater.setInput(encoded, 8, encoded.length - 8);
+                var count = 0;
+
+                while (count < header.length && !inflater.finished()) {
+                    var inflated = inflater.inflate(header, count, header.length - count);
+
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+
+                    count += inflated;
+                }
+
+                if (count < header.length) {
+                    throw new IOException("Invalid compressed attachment data");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Invalid compressed attachment data", e);
+            } finally {
+                inflater.end();
+            }
+        } else {
+            throw new IOException(String.format("Unknown encoded attachment data type %d", dataType));
+        }
+
+        return dataLength - ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt();
+    }
+
+    /**
+     * Returns a record referencing the stored copy of a payload with the same
+     * hash, or null if there is none, in which case the payload is claimed
+     * and its copy has to be added with {@link #addToIndex} or released with
+     * {@link #releaseClaim}. Inline duplicates carry only the hash of the
+     * record that holds the data.
+     */
+    private ValueJsonRecord findDuplicate(String name, String type, String hash, long size) {
+        if (hash == null) {
+            return null;
+        }
+
+        var path = dedupIndex.claim(hash, size);
+
+        if (path == null) {
+            return null;
+        }
+
+        var record = storeInline
+            ? new ValueJsonRecord(name, type, (byte[]) null, Long.valueOf(size))
+            : new ValueJsonRecord(name, type, path, archive != null || saveToAbsolutePath, Long.valueOf(size));
+        record.hash = hash;
+
+        return record;
+    }
+
+    /**
+     * Sets the hash of a stored payload on its record, and adds the copy to
+     * the index if it was claimed and not queued to be written in the
+     * background, which adds it itself once written.
+     */
+    private void addToIndex(String hash, String claimed, ValueJsonRecord record) {
+        if (hash != null) {
+            record.hash = hash;
+        }
+
+        if (claimed != null) {
+            dedupIndex.stored(claimed, record.path != null ? record.path : "");
+        }
+    }
+
+    private void releaseClaim(String claimed) {
+        if (claimed != null) {
+            dedupIndex.failed(claimed);
+        }
+    }
+
     private Boolean createFilesPath(String rootPath, Path basePath) {
-        if (saveToFilesystem) {
+        if (saveToFilesystem && archive == null) {
             try {
-                Files.createDirectories(Paths.get(rootPath, basePath.toString()).normalize());
+                var directory = Paths.get(rootPath, basePath.toString()).normalize();
+
+                if (!createdDirectories.contains(directory)) {
+                    Files.createDirectories(directory);
+                    createdDirectories.add(directory);
+                }
             } catch (IOException e) {
                 converter.Error(String.format("Could not create directory '%s'", rootPath), e);
                 return false;
@@ -350,22 +789,111 @@ public class FileValue {
         return true;
     }
 
-    public String getRecordsJson() {
-        return new GsonBuilder()
-            // .setPrettyPrinting()
-            .registerTypeAdapter(ValueJsonRecord.class, new ValueJsonRecordAdapter())
-            .create()
-            .toJson(records);
+    /**
+     * Queues a file write. Its record is written right away with the path
+     * of the file, which has to be added next; the write is awaited before
+     * the row is converted, see {@link #queueWrites}. A claimed payload is
+     * added to the index at its record path only once written.
+     */
+    private void submitWrite(String path, String claimed, String recordPath, FileWrite write) {
+        pendingWrites.add(new PendingWrite(path, records, records.size(), fileSink.submit(() -> {
+            try {
+                write.run();
+
+                if (claimed != null) {
+                    dedupIndex.stored(claimed, recordPath);
+                }
+            } finally {
+                // Does nothing once stored
+                releaseClaim(claimed);
+            }
+
+            return null;
+        })));
+    }
+
+    @FunctionalInterface
+    interface FileWrite {
+        void run() throws Exception;
     }
 
-    public JsonArrayBuilder getRecordsJsonArrayBuilder() {
-        var json = new GsonBuilder()
-            .registerTypeAdapter(ValueJsonRecord.class, new ValueJsonRecordAdapter())
-            .create()
-            .toJson(records);
-        var jsonReader =  Json.createReader(new StringReader(json));
+    /**
+     * Hands the files queued for a cell over to its batch, which has them
+     * awaited before the row is converted, see {@link Converter#awaitFileWrites}.
+     */
+    void queueWrites(RowBatch batch, int row) {
+        for (PendingWrite write : pendingWrites) {
+            write.row = row;
+            batch.pendingWrites.add(write);
+        }
+
+        pendingWrites.clear();
+    }
+
+    public String getRecordsJson(List<ValueJsonRecord> records) {
+        recordWriter.buffer.setLength(0);
+        recordWriter.append(records);
+
+        return recordWriter.buffer.toString();
+    }
+
+    /**
+     * Writes the records as a MySQL string literal. The data of large inline
+     * payloads is Base64 encoded from its stream in chunks and spliced into
+     * the JSON of its record, so the whole payload never exists as a string.
+     */
+    public void writeRecordsSql(SqlFileWriter writer, List<ValueJsonRecord> records) throws IOException {
+        var buffer = recordWriter.buffer;
+
+        writer.write("'[");
+
+        for (int i = 0; i < records.size(); i++) {
+            var record = records.get(i);
+
+            if (i > 0) {
+                writer.write(',');
+            }
+
+            buffer.setLength(0);
+            recordWriter.append(record, record.dataStream == null);
+            ValueEncoders.writeSqlStringContent(writer, buffer);
+
+            if (record.dataStream != null) {
+                // The data is the last property, written in place of the closing brace
+                writer.write(buffer.length() > 1 ? ",\"data\":\"" : "\"data\":\"");
+                // The padding is escaped like Gson does, and its backslash escaped again for SQL
+                ValueEncoders.writeBase64(writer, record.dataStream, "\\\\u003d");
+                writer.write("\"}");
+            }
+        }
+
+        writer.write("]'");
+    }
+
+    /**
+     * Writes the records as an array straight into a JSON stream, as a
+     * property when a name is given.
+     */
+    public void writeRecords(JsonGenerator generator, String name, List<ValueJsonRecord> records) {
+        if (name != null) {
+            generator.writeStartArray(name);
+        } else {
+            generator.writeStartArray();
+        }
+
+        for (var record : records) {
+            ValueJsonRecordWriter.write(generator, record);
+        }
+
+        generator.writeEnd();
+    }
+
+    public JsonArrayBuilder getRecordsJsonArrayBuilder(List<ValueJsonRecord> records) {
         var builder = Json.createArrayBuilder();
-        jsonReader.readArray().forEach(builder::add);
+
+        for (var record : records) {
+            builder.add(ValueJsonRecordWriter.toJsonObject(record));
+        }
 
         return builder;
     }
@@ -388,6 +916,13 @@ public class FileValue {
         FileUtils.copyInputStreamToFile(data, file);
     }
 
+    private void saveArchiveEntry(String entryName, InputStream data)
+        throws FileAlreadyExistsException, IOException {
+        if (!archive.addEntry(entryName, data)) {
+            throw new FileAlreadyExistsException(String.format("File already exists in the archive '%s'", entryName));
+        }
+    }
+
     private void deleteExistingFile(File file, String path) throws FileAlreadyExistsException {
         if (file.exists()) {
             if (!overwriteExistingFiles) {
@@ -51,6 +51,16 @@ public class Globals {
         return Double.valueOf(roundedWithScale.toString());
     }
 
+    public static double floatValue(float value, Column column) {
+        Byte precission = column.getPrecision();
+
+        if (precission == 0) {
+            precission = 2;
+        }
+
+        return ValueEncoders.roundHalfUp(value, precission);
+    }
+
     public static long defaultIfNullLong(Long l) {
         return defaultIfNullLong(l, 0);
     }
@@ -0,0 +1,338 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2024 Christos Lytras <christos.lytras@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.lytrax.accessconverter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Read-only channels for opening the Access file, passed to Jackcess with
+ * {@code DatabaseBuilder.setChannel}. Every channel counts its page reads and
+ * the time spent in them, so the throughput of the input can be logged.
+ *
+ * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
+ */
+public abstract class InputChannel extends FileChannel {
+    public final String name;
+    private long position = 0;
+    private long reads = 0;
+    private long bytes = 0;
+    private long nanos = 0;
+
+    protected InputChannel(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Reads into {@code dst} starting at the given file position and returns
+     * the number of bytes read, or -1 at the end of the file.
+     */
+    protected abstract int readAt(ByteBuffer dst, long position) throws IOException;
+
+    public synchronized long getReads() {
+        return reads;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+        long start = System.nanoTime();
+        int count = readAt(dst, position);
+        long elapsed = System.nanoTime() - start;
+
+        synchronized (this) {
+            reads++;
+            nanos += elapsed;
+
+            if (count > 0) {
+                bytes += count;
+            }
+        }
+
+        return count;
+    }
+
+    @Override
+    public synchronized int read(ByteBuffer dst) throws IOException {
+        int count = read(dst, position);
+
+        if (count > 0) {
+            position += count;
+        }
+
+        return count;
+    }
+
+    @Override
+    public synchronized long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        long total = 0;
+
+        for (int i = offset; i < offset + length; i++) {
+            int count = read(dsts[i]);
+
+            if (count < 0) {
+                return total == 0 ? -1 : total;
+            }
+
+            total += count;
+
+            if (dsts[i].hasRemaining()) {
+                break;
+            }
+        }
+
+        return total;
+    }
+
+    @Override
+    public synchronized long position() {
+        return position;
+    }
+
+    @Override
+    public synchronized FileChannel position(long newPosition) {
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(count, 1 << 16));
+        long total = 0;
+
+        while (total < count) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), count - total));
+            int read = read(buffer, position + total);
+
+            if (read <= 0) {
+                break;
+            }
+
+            buffer.flip();
+
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+
+            total += read;
+        }
+
+        return total;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public int write(ByteBuffer src, long position) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public FileChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel src, long position, long count) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public void force(boolean metaData) {}
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size) {
+        throw new UnsupportedOperationException("Input channels can not be mapped");
+    }
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) {
+        throw new UnsupportedOperationException("Input channels can not be locked");
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) {
+        throw new UnsupportedOperationException("Input channels can not be locked");
+    }
+
+    /**
+     * The regular file channel, measured.
+     */
+    public static class Direct extends InputChannel {
+        private final FileChannel channel;
+
+        public Direct(Path path) throws IOException {
+            super("file");
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        }
+
+        @Override
+        protected int readAt(ByteBuffer dst, long position) throws IOException {
+            return channel.read(dst, position);
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * The whole file mapped in memory, so page reads are memory copies instead
+     * of read system calls. The file is mapped in segments of up to 1GB.
+     */
+    public static class Mapped extends InputChannel {
+        private static final int SEGMENT_BITS = 30;
+        private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+        private MappedByteBuffer[] segments;
+        private final long size;
+
+        public Mapped(Path path) throws IOException {
+            super("mapped");
+
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                size = channel.size();
+                segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >> SEGMENT_BITS)];
+
+                for (int i = 0; i < segments.length; i++) {
+                    long offset = (long) i << SEGMENT_BITS;
+                    segments[i] = channel.map(MapMode.READ_ONLY, offset, Math.min(SEGMENT_SIZE, size - offset));
+                }
+            }
+        }
+
+        @Override
+        protected int readAt(ByteBuffer dst, long position) {
+            if (position >= size) {
+                return -1;
+            }
+
+            int total = 0;
+
+            while (dst.hasRemaining() && position < size) {
+                MappedByteBuffer segment = segments[(int) (position >> SEGMENT_BITS)];
+                int offset = (int) (position & (SEGMENT_SIZE - 1));
+                int count = Math.min(dst.remaining(), segment.capacity() - offset);
+
+                dst.put(dst.position(), segment, offset, count);
+                dst.position(dst.position() + count);
+                position += count;
+                total += count;
+            }
+
+            return total;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        /**
+         * Drops the segments; the mapping has no explicit unmap and is
+         * released once the buffers are collected.
+         */
+        @Override
+        protected void implCloseChannel() {
+            segments = null;
+        }
+    }
+
+    /**
+     * A database staged in memory as a list of equally sized chunks, the last
+     * one possibly shorter. The chunks are shared and never modified, so every
+     * handle can read them through its own channel.
+     */
+    public static class Memory extends InputChannel {
+        private final List<byte[]> chunks;
+        private final int chunkSize;
+        private final long size;
+
+        public Memory(List<byte[]> chunks, long size) {
+            super("memory");
+            this.chunks = chunks;
+            this.chunkSize = chunks.isEmpty() ? 1 : chunks.get(0).length;
+            this.size = size;
+        }
+
+        @Override
+        protected int readAt(ByteBuffer dst, long position) {
+            if (position >= size) {
+                return -1;
+            }
+
+            int total = 0;
+
+            while (dst.hasRemaining() && position < size) {
+                byte[] chunk = chunks.get((int) (position / chunkSize));
+                int offset = (int) (position % chunkSize);
+                int count = Math.min(dst.remaining(), chunk.length - offset);
+
+                dst.put(chunk, offset, count);
+                position += count;
+                total += count;
+            }
+
+            return total;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        protected void implCloseChannel() {}
+    }
+}
@@ -24,39 +24,58 @@
 package com.lytrax.accessconverter;
 
 import com.healthmarketscience.jackcess.*;
-import com.healthmarketscience.jackcess.complex.Attachment;
-import com.healthmarketscience.jackcess.complex.ComplexValueForeignKey;
 
-import java.io.FileWriter;
+import java.io.File;
+import java.io.FilterWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FilenameUtils;
 
 import javax.json.*;
 import javax.json.stream.JsonGenerator;
+import javax.json.stream.JsonGeneratorFactory;
 
 /**
  *
  * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
  */
-public class JSONConverter extends Converter {
+public class JSONConverter extends Converter implements TableSink {
     public Database db;
     public Args args;
     public List<String> lastError = new ArrayList<>();
     public JsonArrayBuilder json;
-    private FileWriter writer;
-
-    public JSONConverter(Args args, Database db, FileWriter writer) {
+    private Writer writer;
+    private boolean isDataAssoc;
+    private boolean isStream;
+    private JsonGenerator generator = null;
+    private JsonObjectBuilder jsonTable = null;
+    private JsonArrayBuilder jsonRows = null;
+    /**
+     * Whether one compact JSON object is written per row, see {@link #toNdjson()}.
+     */
+    public boolean isNdjson = false;
+    private JsonGeneratorFactory ndjsonFactory = null;
+    private Writer ndjsonWriter = null;
+    private String ndjsonTable = null;
+
+    public JSONConverter(Args args, Database db, Writer writer) {
         this.args = args;
         this.db = db;
         this.writer = writer;
+        this.isDataAssoc = args.GetOption("json-data", "assoc").equals("assoc");
+        this.isStream = args.HasFlag("json-stream");
     }
 
     public void writeJson() {
@@ -68,74 +87,379 @@ public class JSONConverter extends Converter {
     }
 
     public boolean toJson() {
-        boolean result = false;
-        final String methodName = "toJson";
+        isStream = false;
+        return convert("toJson");
+    }
+
+    /**
+     * Writes the JSON document directly to the output writer while the tables
+     * are being read, so only the current row is kept in memory.
+     * The produced document has the same structure as {@link #toJson()}.
+     */
+    public boolean toJsonStream() {
+        isStream = true;
+        return convert("toJsonStream");
+    }
+
+    /**
+     * Writes one compact JSON object per line for each row, holding the table
+     * name and the row data, so the output can be written and read a row at a
+     * time and split on line boundaries.
+     */
+    public boolean toNdjson() {
+        isNdjson = true;
+        return convert("toNdjson");
+    }
+
+    /**
+     * Writes every table to its own JSON file next to the output file, on
+     * worker threads that each read with their own database handle; the
+     * largest tables are scheduled first. The output gets an index of the
+     * tables with their row counts and the names of their files.
+     */
+    public boolean toJsonFiles(File indexFile) {
+        final String methodName = "toJsonFiles";
+        List<String> tableNames;
+        Map<String, Integer> rowCounts = new HashMap<>();
+
+        try {
+            tableNames = new ArrayList<>(db.getTableNames());
+
+            for (String tableName : tableNames) {
+                rowCounts.put(tableName, db.getTable(tableName).getRowCount());
+            }
+        } catch (IOException e) {
+            Error("Could not fetch tables from the database", e, methodName);
+            return false;
+        }
+
+        List<String> schedule = new ArrayList<>(tableNames);
+        schedule.sort((a, b) -> Integer.compare(rowCounts.get(b), rowCounts.get(a)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(AccessConverter.getThreads());
+        Map<String, Future<File>> tableFiles = new HashMap<>();
         json = Json.createArrayBuilder();
 
+        AccessConverter.progressStatus.startTables(
+            tableNames.size(),
+            rowCounts.values().stream().mapToInt(Integer::intValue).sum()
+        );
+
+        try (DatabaseHandles handles = new DatabaseHandles()) {
+            for (String tableName : schedule) {
+                File tableFile = getTableFile(indexFile, tableName);
+                tableFiles.put(tableName, executor.submit(() -> writeTableFile(handles, tableName, tableFile)));
+            }
+
+            for (String tableName : tableNames) {
+                File tableFile;
+
+                try {
+                    tableFile = tableFiles.get(tableName).get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Error(String.format("Could not convert table '%s'", tableName), e, methodName);
+                    continue;
+                } finally {
+                    AccessConverter.progressStatus.tableDone();
+                }
+
+                if (tableFile == null) {
+                    continue;
+                }
+
+                AccessConverter.tableFiles.add(tableFile);
+                json.add(
+                    Json.createObjectBuilder()
+                        .add("name", tableName)
+                        .add("rows", rowCounts.get(tableName))
+                        .add("file", tableFile.getName())
+                );
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        AccessConverter.progressStatus.endTables();
+        AccessConverter.progressStatus.resetLine();
+
+        try {
+            writeJson();
+            return true;
+        } catch (JsonException e) {
+            Error("Could not write JSON index", e, methodName);
+            return false;
+        }
+    }
+
+    /**
+     * The file of a table: the output filename without its extensions,
+     * followed by the table name with the characters that are not safe
+     * for filenames replaced.
+     */
+    private File getTableFile(File indexFile, String tableName) {
+        String baseName = FilenameUtils.getBaseName(CompressedOutput.getEntryName(indexFile.getName(), args, "json"));
+        String safeName = tableName.replaceAll("[^\\p{L}\\p{N}._ -]", "_");
+        String filename = CompressedOutput.getFilename(String.format("%s-%s.json", baseName, safeName), args);
+        File tableFile = new File(indexFile.getParentFile(), filename);
+
+        if (tableFile.exists()) {
+            tableFile.delete();
+        }
+
+        return tableFile;
+    }
+
+    private File writeTableFile(DatabaseHandles handles, String tableName, File tableFile) {
+        final String methodName = "writeTableFile";
+        String entryName = CompressedOutput.getEntryName(tableFile.getName(), args, "json");
+
+        try (Writer tableWriter = CompressedOutput.newWriter(tableFile, args, entryName)) {
+            Database handle = handles.get();
+            Table table = handle.getTable(tableName);
+            JSONConverter converter = new JSONConverter(args, handle, tableWriter);
+            converter.isStream = true;
+            converter.generator = createGenerator(tableWriter);
+
+            // Only steps the progress, the tables are counted by toJsonFiles
+            converter.addTable(table);
+            converter.generator.close();
+
+            return tableFile;
+        } catch (IOException | JsonException e) {
+            Error(String.format("Could not write the JSON file of table '%s'", tableName), e, methodName);
+            tableFile.delete();
+
+            return null;
+        }
+    }
+
+    private JsonGenerator createGenerator(Writer writer) {
+        Map<String, Object> properties = new HashMap<String, Object>(1);
+        properties.put(JsonGenerator.PRETTY_PRINTING, true);
+
+        return Json.createGeneratorFactory(properties).createGenerator(writer);
+    }
+
+    private boolean convert(String methodName) {
+        if (!open()) {
+            return false;
+        }
+
         try {
             Set<String> tableNames = db.getTableNames();
 
-            tableNames.forEach((tableName) -> {
+            for (String tableName : tableNames) {
+                Table table;
+
                 try {
-                    boolean isDataAssoc = args.GetOption("json-data", "assoc").equals("assoc");
-                    Table table = db.getTable(tableName);
-                    AccessConverter.progressStatus.startTable(table);
-
-                    JsonObjectBuilder jsonTable = Json.createObjectBuilder();
-                    JsonArrayBuilder jsonColumns = Json.createArrayBuilder();
-
-                    jsonTable.add("name", tableName);
-
-                    if (args.HasFlag("json-columns")) {
-                        for (Column column : table.getColumns()) {
-                            JsonObjectBuilder jsonColumn = Json.createObjectBuilder();
-                            jsonColumn.add("name", column.getName());
-                            jsonColumn.add("type", column.getType().toString());
-                            jsonColumn.add("size", column.getLength());
-                            jsonColumns.add(jsonColumn);
-                        }
-
-                        jsonTable.add("columns", jsonColumns);
-                    }
-
-                    JsonArrayBuilder jsonRows = Json.createArrayBuilder();
-                    JsonArrayBuilder jsonDataArray = Json.createArrayBuilder();
-                    JsonObjectBuilder jsonDataObject = Json.createObjectBuilder();
-
-                    for (Row row : table) {
-                        for (Column column : table.getColumns()) {
-                            if (isDataAssoc) {
-                                addToJson(jsonDataObject, column, row);
-                            } else {
-                                addToJson(jsonDataArray, column, row);
-                            }
-                        }
-
-                        if (isDataAssoc) {
-                            jsonRows.add(jsonDataObject);
-                        } else {
-                            jsonRows.add(jsonDataArray);
-                        }
-
-                        AccessConverter.progressStatus.step();
-                    }
-
-                    jsonTable.add("data", jsonRows);
-                    json.add(jsonTable);
-
-                    AccessConverter.progressStatus.endTable();
+                    table = db.getTable(tableName);
                 } catch (IOException e) {
                     Error(String.format("Could not load table '%s'", tableName), e, methodName);
+                    continue;
                 }
-            });
+
+                AccessConverter.progressStatus.startTable(table);
+                addTable(table);
+                AccessConverter.progressStatus.endTable();
+            }
 
             AccessConverter.progressStatus.resetLine();
-            result = true;
         } catch (IOException e) {
             Error("Could not fetch tables from the database", e, methodName);
+            return false;
+        } catch (JsonException e) {
+            Error("Could not write JSON data", e, methodName);
+            return false;
+        }
+
+        return close();
+    }
+
+    private void addTable(Table table) throws IOException {
+        startTable(table);
+
+        try (RowSource source = RowSource.open(args, new TableCodec(table))) {
+            RowBatch batch;
+
+            while ((batch = source.next()) != null) {
+                addRows(batch);
+                AccessConverter.progressStatus.step(batch.size);
+                source.release(batch);
+            }
+        } catch (IOException e) {
+            Error(String.format("Could not read data of table '%s'", table.getName()), e, "addTable");
+        }
+
+        endTable(table);
+    }
+
+    @Override
+    public boolean open() {
+        if (isNdjson) {
+            ndjsonFactory = Json.createGeneratorFactory(null);
+            // The generator of each row is closed, which must not close the output
+            ndjsonWriter = new FilterWriter(writer) {
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+        } else if (isStream) {
+            generator = createGenerator(writer);
+            generator.writeStartArray();
+        } else {
+            json = Json.createArrayBuilder();
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean startTable(Table table) {
+        if (isNdjson) {
+            ndjsonTable = table.getName();
+        } else if (isStream) {
+            generator.writeStartObject();
+            generator.write("name", table.getName());
+
+            if (args.HasFlag("json-columns")) {
+                generator.writeStartArray("columns");
+
+                for (Column column : table.getColumns()) {
+                    generator.writeStartObject();
+                    generator.write("name", column.getName());
+                    generator.write("type", column.getType().toString());
+                    generator.write("size", column.getLength());
+                    generator.writeEnd();
+                }
+
+                generator.writeEnd();
+            }
+
+            generator.writeStartArray("data");
+        } else {
+            jsonTable = Json.createObjectBuilder();
+            jsonTable.add("name", table.getName());
+
+            if (args.HasFlag("json-columns")) {
+                JsonArrayBuilder jsonColumns = Json.createArrayBuilder();
+
+                for (Column column : table.getColumns()) {
+                    JsonObjectBuilder jsonColumn = Json.createObjectBuilder();
+                    jsonColumn.add("name", column.getName());
+                    jsonColumn.add("type", column.getType().toString());
+                    jsonColumn.add("size", column.getLength());
+                    jsonColumns.add(jsonColumn);
+                }
+
+                jsonTable.add("columns", jsonColumns);
+            }
+
+            jsonRows = Json.createArrayBuilder();
         }
 
-        return result;
+        return true;
+    }
+
+    @Override
+    public void addRows(RowBatch batch) throws IOException {
+        extractFiles(args, Globals.OUTPUT_MYSQL, batch);
+
+        for (int row = 0; row < batch.size; row++) {
+            awaitFileWrites(batch, row);
+
+            if (isNdjson) {
+                addNdjsonRow(batch, row);
+            } else if (isStream) {
+                if (isDataAssoc) {
+                    generator.writeStartObject();
+                } else {
+                    generator.writeStartArray();
+                }
+
+                for (ColumnCodec column : batch.codec.columns) {
+                    addToJson(generator, column, batch, row);
+                }
+
+                generator.writeEnd();
+            } else if (isDataAssoc) {
+                JsonObjectBuilder jsonDataObject = Json.createObjectBuilder();
+
+                for (ColumnCodec column : batch.codec.columns) {
+                    addToJson(jsonDataObject, column, batch, row);
+                }
+
+                jsonRows.add(jsonDataObject);
+            } else {
+                JsonArrayBuilder jsonDataArray = Json.createArrayBuilder();
+
+                for (ColumnCodec column : batch.codec.columns) {
+                    addToJson(jsonDataArray, column, batch, row);
+                }
+
+                jsonRows.add(jsonDataArray);
+            }
+        }
+    }
+
+    private void addNdjsonRow(RowBatch batch, int row) throws IOException {
+        try (JsonGenerator rowGenerator = ndjsonFactory.createGenerator(ndjsonWriter)) {
+            rowGenerator.writeStartObject();
+            rowGenerator.write("table", ndjsonTable);
+
+            if (isDataAssoc) {
+                rowGenerator.writeStartObject("data");
+            } else {
+                rowGenerator.writeStartArray("data");
+            }
+
+            for (ColumnCodec column : batch.codec.columns) {
+                addToJson(rowGenerator, column, batch, row);
+            }
+
+            rowGenerator.writeEnd();
+            rowGenerator.writeEnd();
+        }
+
+        writer.write('\n');
+    }
+
+    @Override
+    public void endTable(Table table) {
+        if (isNdjson) {
+            ndjsonTable = null;
+        } else if (isStream) {
+            generator.writeEnd();
+            generator.writeEnd();
+            generator.flush();
+        } else {
+            jsonTable.add("data", jsonRows);
+            json.add(jsonTable);
+            jsonTable = null;
+            jsonRows = null;
+        }
+    }
+
+    /**
+     * Completes the JSON document and writes it, when it was built in memory.
+     */
+    @Override
+    public boolean close() {
+        try {
+            if (isNdjson) {
+                writer.flush();
+            } else if (isStream) {
+                generator.writeEnd();
+                generator.flush();
+            } else {
+                writeJson();
+            }
+
+            return true;
+        } catch (IOException | JsonException e) {
+            Error("Could not write JSON data", e, "close");
+            return false;
+        }
     }
 
     private <T, U> void addData(T json, String name, U data) {
@@ -167,6 +491,62 @@ public class JSONConverter extends Converter {
                     ((JsonArrayBuilder)json).add((String)data);
                 }
             }
+        } else if (json instanceof JsonGenerator) {
+            JsonGenerator generator = (JsonGenerator)json;
+
+            if (data instanceof JsonArrayBuilder) {
+                addData(generator, name, ((JsonArrayBuilder)data).build());
+            } else if (data instanceof JsonObjectBuilder) {
+                addData(generator, name, ((JsonObjectBuilder)data).build());
+            } else if (isDataAssoc) {
+                if (data == null) {
+                    generator.writeNull(name);
+                } else if (data instanceof JsonValue) {
+                    generator.write(name, (JsonValue)data);
+                } else if (data instanceof Boolean) {
+                    generator.write(name, (Boolean)data);
+                } else if (data instanceof Integer) {
+                    generator.write(name, (Integer)data);
+                } else if (data instanceof Long) {
+                    generator.write(name, (Long)data);
+                } else if (data instanceof Float) {
+                    generator.write(name, (Float)data);
+                } else if (data instanceof Short) {
+                    generator.write(name, (Short)data);
+                } else if (data instanceof Byte) {
+                    generator.write(name, (Byte)data);
+                } else if (data instanceof Double) {
+                    generator.write(name, (Double)data);
+                } else if (data instanceof BigDecimal) {
+                    generator.write(name, (BigDecimal)data);
+                } else {
+                    generator.write(name, (String)data);
+                }
+            } else {
+                if (data == null) {
+                    generator.writeNull();
+                } else if (data instanceof JsonValue) {
+                    generator.write((JsonValue)data);
+                } else if (data instanceof Boolean) {
+                    generator.write((Boolean)data);
+                } else if (data instanceof Integer) {
+                    generator.write((Integer)data);
+                } else if (data instanceof Long) {
+                    generator.write((Long)data);
+                } else if (data instanceof Float) {
+                    generator.write((Float)data);
+                } else if (data instanceof Short) {
+                    generator.write((Short)data);
+                } else if (data instanceof Byte) {
+                    generator.write((Byte)data);
+                } else if (data instanceof Double) {
+                    generator.write((Double)data);
+                } else if (data instanceof BigDecimal) {
+                    generator.write((BigDecimal)data);
+                } else {
+                    generator.write((String)data);
+                }
+            }
         } else if (json instanceof JsonObjectBuilder) {
             if (data == null) {
                 ((JsonObjectBuilder)json).addNull(name);
@@ -198,56 +578,106 @@ public class JSONConverter extends Converter {
         }
     }
 
-    private void addToJson(Object json, Column column, Row row) {
-        var type = column.getType().toString().toUpperCase();
-        var name = column.getName();
-        var tableName = column.getTable().getName();
+    /**
+     * Adds the file records of a cell, writing them straight into the
+     * stream when streaming instead of building them first.
+     */
+    private <T> void addFileData(T json, String name, ColumnCodec column, List<FileValue.ValueJsonRecord> records) {
+        if (records == null) {
+            addData(json, name, null);
+            return;
+        }
 
-        switch (type) {
-            case "INT": {
-                addData(json, name, row.getShort(name));
-                break;
+        var fileValue = getFileValue(args, Globals.OUTPUT_MYSQL, column.column);
+
+        if (json instanceof JsonGenerator) {
+            fileValue.writeRecords((JsonGenerator)json, isDataAssoc ? name : null, records);
+        } else {
+            addData(json, name, fileValue.getRecordsJsonArrayBuilder(records));
+        }
+    }
+
+    private void addInt(Object json, String name, int data) {
+        if (json instanceof JsonGenerator) {
+            if (isDataAssoc) {
+                ((JsonGenerator)json).write(name, data);
+            } else {
+                ((JsonGenerator)json).write(data);
             }
-            case "LONG": {
-                addData(json, name, row.getInt(name));
-                break;
+        } else if (json instanceof JsonArrayBuilder) {
+            ((JsonArrayBuilder)json).add(data);
+        } else if (json instanceof JsonObjectBuilder) {
+            ((JsonObjectBuilder)json).add(name, data);
+        }
+    }
+
+    private void addDouble(Object json, String name, double data) {
+        if (json instanceof JsonGenerator) {
+            if (isDataAssoc) {
+                ((JsonGenerator)json).write(name, data);
+            } else {
+                ((JsonGenerator)json).write(data);
             }
-            case "BYTE": {
-                addData(json, name, row.getByte(name));
+        } else if (json instanceof JsonArrayBuilder) {
+            ((JsonArrayBuilder)json).add(data);
+        } else if (json instanceof JsonObjectBuilder) {
+            ((JsonObjectBuilder)json).add(name, data);
+        }
+    }
+
+    private void addBoolean(Object json, String name, boolean data) {
+        if (json instanceof JsonGenerator) {
+            if (isDataAssoc) {
+                ((JsonGenerator)json).write(name, data);
+            } else {
+                ((JsonGenerator)json).write(data);
+            }
+        } else if (json instanceof JsonArrayBuilder) {
+            ((JsonArrayBuilder)json).add(data);
+        } else if (json instanceof JsonObjectBuilder) {
+            ((JsonObjectBuilder)json).add(name, data);
+        }
+    }
+
+    private void addToJson(Object json, ColumnCodec column, RowBatch batch, int row) {
+        var name = column.name;
+        var index = column.index;
+
+        if (batch.isNull(row, index)) {
+            addData(json, name, null);
+            return;
+        }
+
+        switch (column.kind) {
+            case BYTE:
+            case INT:
+            case LONG: {
+                addInt(json, name, batch.getInt(row, index));
                 break;
             }
-            case "FLOAT": {
-                Object value = row.get(name);
-                addData(json, name, Globals.floatValue(value, column));
+            case DOUBLE: {
+                addDouble(json, name, batch.getDouble(row, index));
                 break;
             }
-            case "DOUBLE": {
-                addData(json, name, row.getDouble(name));
+            case BOOLEAN: {
+                addBoolean(json, name, batch.getBoolean(row, index));
                 break;
             }
-            case "NUMERIC":
-            case "MONEY": {
-                addData(json, name, row.getBigDecimal(name));
+            case DECIMAL:
+            case TEXT: {
+                addData(json, name, batch.getObject(row, index));
                 break;
             }
-            case "BOOLEAN": {
-                addData(json, name, row.getBoolean(name));
+            case FLOAT: {
+                addDouble(json, name, Globals.floatValue(batch.getFloat(row, index), column.column));
                 break;
             }
-            case "SHORT_DATE_TIME": {
-                LocalDateTime value = row.getLocalDateTime(name);
-
-                if (value == null) {
-                    addData(json, name, null);
-                } else {
-                    DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-                    addData(json, name, value.format(format));
-                }
-
+            case DATE_TIME: {
+                addData(json, name, ValueEncoders.formatDateTime(batch.getDateTimeMillis(row, index)));
                 break;
             }
-            case "BINARY": {
-                byte[] data = row.getBytes(name);
+            case BINARY: {
+                byte[] data = (byte[]) batch.getObject(row, index);
 
                 if (data.length > 0) {
                     addData(json, name, Base64.getEncoder().encodeToString(data));
@@ -257,71 +687,38 @@ public class JSONConverter extends Converter {
 
                 break;
             }
-            case "OLE": {
-                var fileValue = new FileValue(args, Globals.OUTPUT_MYSQL, this);
+            case OLE: {
+                Object value = batch.getObject(row, index);
 
-                try {
-                    if (fileValue.handleOle(column, row, row.getBlob(name))) {
-                        var jsonArrayBuilder = fileValue.getRecordsJsonArrayBuilder();
-                        addData(json, name, jsonArrayBuilder);
-                    } else {
-                        addData(json, name, null);
-                    }
-                } catch (IOException e) {
+                if (value instanceof ColumnCodec.ReadError) {
                     addData(json, name, null);
                     Error(
                         String.format(
                             "Count not fetch OLE data for column '%s' (%s) in table '%s'",
-                            name, row.getId().hashCode(), tableName
+                            name, batch.getId(row).hashCode(), column.column.getTable().getName()
                         )
                     );
+                    break;
                 }
 
+                addFileData(json, name, column, batch.getFiles(row, index));
                 break;
             }
-            case "COMPLEX_TYPE": {
-                if (column.getComplexInfo().getType().name() == "ATTACHMENT") {
-                    try {
-                        ComplexValueForeignKey valueFk =
-                            (ComplexValueForeignKey)column.getRowValue(row);
-                        List<Attachment> attachments = valueFk.getAttachments();
-
-                        if (!attachments.isEmpty()) {
-                            var fileValue = new FileValue(args, Globals.OUTPUT_MYSQL, this);
-
-                            if (fileValue.handleAttachments(column, row, attachments)) {
-                                var jsonArrayBuilder = fileValue.getRecordsJsonArrayBuilder();
-                                addData(json, name, jsonArrayBuilder);
-                            } else {
-                                addData(json, name, null);
-                            }
-                        } else {
-                            addData(json, name, null);
-                        }
-                    } catch (IOException ex) {
-                        addData(json, name, null);
-                        Error(
-                            String.format(
-                                "Count not fetch attachments for column '%s' (%s) in table '%s'",
-                                name, row.getId().hashCode(), tableName
-                            )
-                        );
-                    }
-                } else {
-                    addData(json, name, null);
-                }
+            case ATTACHMENT: {
+                Object value = batch.getObject(row, index);
 
-                break;
-            }
-            case "TEXT":
-            case "MEMO":
-            case "GUID": {
-                try {
-                    addData(json, name, row.getString(name));
-                } catch (Exception e) {
+                if (value instanceof ColumnCodec.ReadError) {
                     addData(json, name, null);
+                    Error(
+                        String.format(
+                            "Count not fetch attachments for column '%s' (%s) in table '%s'",
+                            name, batch.getId(row).hashCode(), column.column.getTable().getName()
+                        )
+                    );
+                    break;
                 }
 
+                addFileData(json, name, column, batch.getFiles(row, index));
                 break;
             }
             default: {
@@ -28,30 +28,32 @@ import com.healthmarketscience.jackcess.Database;
 import com.healthmarketscience.jackcess.Index;
 import com.healthmarketscience.jackcess.PropertyMap;
 import com.healthmarketscience.jackcess.Relationship;
-import com.healthmarketscience.jackcess.Row;
 import com.healthmarketscience.jackcess.Table;
-import com.healthmarketscience.jackcess.complex.Attachment;
-import com.healthmarketscience.jackcess.complex.ComplexValueForeignKey;
 
+import java.io.File;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
-import org.apache.commons.codec.binary.Hex;
-import org.apache.commons.text.TextStringBuilder;
 
 /**
  *
  * @author Christos Lytras <christos.lytras@gmail.com>
  */
-public class MySQLConverter extends Converter {
+public class MySQLConverter extends Converter implements TableSink {
     public final String DefaultCollate = "utf8mb4_unicode_ci";
     public final String DefaultCharset = "utf8mb4";
     public final String DefaultEngine = "InnoDB";
@@ -89,12 +91,40 @@ public class MySQLConverter extends Converter {
         public String onUpdate = null;
     }
 
+    /**
+     * The rows of a companion file table, written to a temporary file while
+     * the rows of the parent table are inserted and appended after them.
+     */
+    static class FileTableInsert {
+        public FileTable fileTable;
+        public File file;
+        public SqlFileWriter writer;
+        public byte[] header;
+        public int rows = 0;
+        public boolean hasRows = false;
+    }
+
+    static class TableSegment {
+        public File file = null;
+        public List<RelationshipDefinitions> relationships = new ArrayList<>();
+    }
+
     public Database db;
     public Args args;
     public Map<String, AutoIncrement> autoIncrements = new HashMap<>();
+    /**
+     * Whether the converter reports the start and end of its tables; the
+     * segments of "-parallel-tables" only step the rows, see addTablesParallel.
+     */
+    private boolean tracksTables = true;
     public List<IndexDefinitions> indexes = new ArrayList<>();
     public List<RelationshipDefinitions> relationships = new ArrayList<>();
     private SqlFileWriter sqlWriter;
+    private byte[] insertHeader = null;
+    private AutoIncrement insertAutoIncrement = null;
+    private int insertRows = 0;
+    private Map<String, FileTable> fileTables = new HashMap<>();
+    private Map<String, FileTableInsert> fileTableInserts = new HashMap<>();
 
     public MySQLConverter(Args args, Database db, SqlFileWriter sqlWriter) {
         this.args = args;
@@ -103,36 +133,264 @@ public class MySQLConverter extends Converter {
     }
 
     public boolean toMySQLDump() {
-        boolean result = false;
         final String methodName = "toMySQLDump";
 
+        if (!open()) {
+            return false;
+        }
+
         try {
-            addHeader();
             Set<String> tableNames = db.getTableNames();
 
-            tableNames.forEach((tableName) -> {
-                try {
-                    Table table = db.getTable(tableName);
-                    AccessConverter.progressStatus.startTable(table);
-                    addTableCreate(table);
-                    addTableInsert(table);
-                    addIndexes();
-                    addAutoIncrements();
-                    AccessConverter.progressStatus.endTable();
-                } catch (IOException e) {
-                    Error(String.format("Could not load table '%s'", tableName), e, methodName);
+            if (args.HasFlag("parallel-tables")) {
+                addTablesParallel(new ArrayList<>(tableNames));
+            } else {
+                tableNames.forEach((tableName) -> {
+                    try {
+                        addTable(db.getTable(tableName));
+                    } catch (IOException e) {
+                        Error(String.format("Could not load table '%s'", tableName), e, methodName);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            Error("Could not fetch tables from the database", e, methodName);
+            return false;
+        }
+
+        boolean result = close();
+        AccessConverter.progressStatus.resetLine();
+
+        return result;
+    }
+
+    @Override
+    public boolean open() {
+        try {
+            addHeader();
+            return true;
+        } catch (IOException e) {
+            Error("Could not write the dump header", e, "open");
+            return false;
+        }
+    }
+
+    @Override
+    public boolean startTable(Table table) throws IOException {
+        fileTables = FileTable.resolve(args, table);
+        addTableCreate(table);
+        startTableInsert(table);
+
+        return true;
+    }
+
+    @Override
+    public void addRows(RowBatch batch) throws IOException {
+        if (insertHeader == null) {
+            return;
+        }
+
+        extractFiles(args, Globals.OUTPUT_MYSQL, batch);
+
+        for (int row = 0; row < batch.size; row++) {
+            awaitFileWrites(batch, row);
+
+            // The header is written with the first row of each statement,
+            // so no empty INSERT is left behind when the rows run out
+            if (insertRows == 0) {
+                sqlWriter.write(insertHeader);
+            } else {
+                sqlWriter.write(", ");
+            }
+
+            sqlWriter.write('(');
+
+            for (ColumnCodec column : batch.codec.columns) {
+                if (column.index > 0) {
+                    sqlWriter.write(", ");
                 }
-            });
 
+                writeValue(sqlWriter, column, batch, row, insertAutoIncrement);
+            }
+
+            sqlWriter.write(')');
+
+            if (++insertRows >= maxInsertRows) {
+                sqlWriter.writeln(";");
+                insertRows = 0;
+            }
+        }
+    }
+
+    @Override
+    public void endTable(Table table) throws IOException {
+        if (insertRows > 0) {
+            sqlWriter.writeln(";");
+        }
+
+        insertHeader = null;
+        insertAutoIncrement = null;
+        insertRows = 0;
+
+        finishFileTableInserts();
+        addIndexes();
+        addAutoIncrements();
+    }
+
+    @Override
+    public boolean close() {
+        try {
             addRelationships();
             addFooter();
-            AccessConverter.progressStatus.resetLine();
-            result = true;
+            return true;
         } catch (IOException e) {
-            Error("Could not fetch tables from the database", e, methodName);
+            Error("Could not write the dump footer", e, "close");
+            return false;
         }
+    }
 
-        return result;
+    private void addTable(Table table) throws IOException {
+        if (tracksTables) {
+            AccessConverter.progressStatus.startTable(table);
+        }
+
+        startTable(table);
+
+        if (table.getRowCount() > 0) {
+            try (RowSource source = RowSource.open(args, new TableCodec(table))) {
+                RowBatch batch;
+
+                while ((batch = source.next()) != null) {
+                    addRows(batch);
+                    AccessConverter.progressStatus.step(batch.size);
+                    source.release(batch);
+                }
+            }
+        }
+
+        endTable(table);
+
+        if (tracksTables) {
+            AccessConverter.progressStatus.endTable();
+        }
+    }
+
+    /**
+     * Renders every table on a worker thread with its own database handle into
+     * a temporary segment file. The segments are appended to the dump in the
+     * original table order; the largest tables are scheduled first.
+     */
+    private void addTablesParallel(List<String> tableNames) throws IOException {
+        final String methodName = "addTablesParallel";
+        Map<String, Integer> rowCounts = new HashMap<>();
+
+        for (String tableName : tableNames) {
+            rowCounts.put(tableName, db.getTable(tableName).getRowCount());
+        }
+
+        List<String> schedule = new ArrayList<>(tableNames);
+        schedule.sort((a, b) -> Integer.compare(rowCounts.get(b), rowCounts.get(a)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(AccessConverter.getThreads());
+        Map<String, Future<TableSegment>> segments = new HashMap<>();
+
+        AccessConverter.progressStatus.startTables(
+            tableNames.size(),
+            rowCounts.values().stream().mapToInt(Integer::intValue).sum()
+        );
+
+        try (DatabaseHandles handles = new DatabaseHandles()) {
+            for (String tableName : schedule) {
+                segments.put(tableName, executor.submit(() -> renderTableSegment(handles, tableName)));
+            }
+
+            for (String tableName : tableNames) {
+                TableSegment segment;
+
+                try {
+                    segment = segments.get(tableName).get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Error(String.format("Could not convert table '%s'", tableName), e, methodName);
+                    continue;
+                }
+
+                if (segment.file != null) {
+                    try {
+                        sqlWriter.append(segment.file);
+                    } finally {
+                        segment.file.delete();
+                    }
+                }
+
+                relationships.addAll(segment.relationships);
+            }
+        } finally {
+            executor.shutdownNow();
+            deleteSegments(executor, segments.values());
+            AccessConverter.progressStatus.endTables();
+        }
+    }
+
+    /**
+     * Deletes the segment files left when the appending stopped, once the
+     * cancelled workers have finished; appended segments are already gone.
+     */
+    private void deleteSegments(ExecutorService executor, Collection<Future<TableSegment>> segments) {
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (Future<TableSegment> future : segments) {
+            if (!future.isDone() || future.isCancelled()) {
+                continue;
+            }
+
+            try {
+                TableSegment segment = future.get();
+
+                if (segment.file != null) {
+                    segment.file.delete();
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                // The worker failed and left no segment file
+            }
+        }
+    }
+
+    private TableSegment renderTableSegment(DatabaseHandles handles, String tableName) {
+        final String methodName = "renderTableSegment";
+        TableSegment segment = new TableSegment();
+
+        try {
+            Database handle = handles.get();
+            segment.file = File.createTempFile("access-converter-" + Globals.OUTPUT_MYSQL + "-segment", ".tmp");
+
+            try (SqlFileWriter segmentWriter = new SqlFileWriter(segment.file)) {
+                MySQLConverter converter = new MySQLConverter(args, handle, segmentWriter);
+                // The segments are parts of the same dump
+                converter.shareDedupIndex(this);
+                converter.collate = collate;
+                converter.charset = charset;
+                converter.engine = engine;
+                converter.maxInsertRows = maxInsertRows;
+                converter.tracksTables = false;
+                converter.addTable(handle.getTable(tableName));
+                segment.relationships = converter.relationships;
+            }
+        } catch (IOException e) {
+            Error(String.format("Could not load table '%s'", tableName), e, methodName);
+
+            if (segment.file != null) {
+                segment.file.delete();
+                segment.file = null;
+            }
+        } finally {
+            AccessConverter.progressStatus.tableDone();
+        }
+
+        return segment;
     }
 
     private void addHeader() throws IOException {
@@ -332,6 +590,13 @@ public class MySQLConverter extends Converter {
                 }
                 case "OLE":
                 case "COMPLEX_TYPE": {
+                    if (fileTables.containsKey(name)) {
+                        // The files are stored in the companion table, the column holds their number
+                        sqlWriter.write("INT(10) UNSIGNED");
+                        defVal = null;
+                        break;
+                    }
+
                     // We will be storing complex type attachments and OLE objects as JSON data
                     // with attachment/content info and binary data or file paths
                     sqlWriter.write("LONGTEXT");
@@ -403,9 +668,81 @@ public class MySQLConverter extends Converter {
         sqlWriter.writeNewLine();
         sqlWriter.writeln(") ENGINE=%s DEFAULT CHARSET=%s COLLATE=%s;", engine, charset, collate);
         sqlWriter.writeNewLine();
+
+        for (FileTable fileTable : fileTables.values()) {
+            addFileTableCreate(fileTable);
+        }
     }
 
-    private void addTableInsert(Table table) throws IOException {
+    private void addFileTableCreate(FileTable fileTable) throws IOException {
+        if (args.HasFlag("mysql-drop-tables")) {
+            sqlWriter.writeln("--");
+            sqlWriter.writeln("-- Drop table `%s` if exists", fileTable.name);
+            sqlWriter.writeln("--");
+            sqlWriter.writeNewLine();
+            sqlWriter.writeln("DROP TABLE IF EXISTS `%s`;", fileTable.name);
+            sqlWriter.writeNewLine();
+        }
+
+        sqlWriter.writeln("--");
+        sqlWriter.writeln("-- Table structure for the files of column `%s` of table `%s`", fileTable.column.getName(), fileTable.table.getName());
+        sqlWriter.writeln("--");
+        sqlWriter.writeNewLine();
+
+        sqlWriter.writeln("CREATE TABLE IF NOT EXISTS `%s` (", fileTable.name);
+
+        for (Column keyColumn : fileTable.keyColumns) {
+            sqlWriter.writeln("  `%s` %s NOT NULL,", keyColumn.getName(), getKeyColumnType(keyColumn));
+        }
+
+        sqlWriter.writeln("  `position` INT(10) UNSIGNED NOT NULL,");
+        sqlWriter.writeln("  `file_name` VARCHAR(255) COLLATE %s,", collate);
+        sqlWriter.writeln("  `file_type` VARCHAR(255) COLLATE %s,", collate);
+        sqlWriter.writeln("  `file_size` BIGINT(20) UNSIGNED,");
+        sqlWriter.writeln("  `file_hash` CHAR(64) COLLATE %s,", collate);
+        sqlWriter.writeln("  `file_path` TEXT COLLATE %s,", collate);
+
+        if (fileTable.withData) {
+            sqlWriter.writeln("  `%s` LONGBLOB,", FileTable.DATA_COLUMN);
+        }
+
+        sqlWriter.writeln(
+            "  PRIMARY KEY (%s)",
+            String.join(", ", Utils.quoteSqlNames(fileTable.getKeyColumnNames())) + ", `position`"
+        );
+        sqlWriter.writeln(") ENGINE=%s DEFAULT CHARSET=%s COLLATE=%s;", engine, charset, collate);
+        sqlWriter.writeNewLine();
+    }
+
+    /**
+     * Gets the type of a primary key column copied into a companion file table.
+     */
+    private String getKeyColumnType(Column column) {
+        switch (column.getType().toString().toUpperCase()) {
+            case "BYTE":
+                return "TINYINT(3)";
+            case "INT":
+                return "SMALLINT(5)";
+            case "LONG":
+                return column.isAutoNumber() ? "INT(10) UNSIGNED" : "INT(10)";
+            case "FLOAT":
+                return "FLOAT";
+            case "DOUBLE":
+                return "DOUBLE";
+            case "NUMERIC":
+                return "DECIMAL(28,0)";
+            case "MONEY":
+                return "DECIMAL(15,4)";
+            case "SHORT_DATE_TIME":
+                return "DATETIME";
+            case "GUID":
+                return String.format("VARCHAR(50) COLLATE %s", collate);
+            default:
+                return String.format("VARCHAR(255) COLLATE %s", collate);
+        }
+    }
+
+    private void startTableInsert(Table table) throws IOException {
         if (table.getRowCount() == 0) {
             return;
         }
@@ -421,200 +758,258 @@ public class MySQLConverter extends Converter {
         sqlWriter.writeln("--");
         sqlWriter.writeNewLine();
 
-        TextStringBuilder insertHeader = new TextStringBuilder();
-
-        insertHeader.append(
-            "INSERT INTO `%s` (%s) VALUES",
-            tableName,
-            String.join(", ", Utils.quoteSqlNames(columnNames))
+        insertHeader = SqlFileWriter.encode(
+            String.format(
+                "INSERT INTO `%s` (%s) VALUES",
+                tableName,
+                String.join(", ", Utils.quoteSqlNames(columnNames))
+            )
         );
+        insertAutoIncrement = autoIncrements.get(tableName);
+        insertRows = 0;
+
+        for (FileTable fileTable : fileTables.values()) {
+            var insert = new FileTableInsert();
+            insert.fileTable = fileTable;
+            insert.header = SqlFileWriter.encode(
+                String.format(
+                    "INSERT INTO `%s` (%s) VALUES",
+                    fileTable.name,
+                    String.join(", ", Utils.quoteSqlNames(fileTable.getColumnNames()))
+                )
+            );
+            insert.file = File.createTempFile("access-converter-" + Globals.OUTPUT_MYSQL + "-files", ".tmp");
+            insert.writer = new SqlFileWriter(insert.file);
+            fileTableInserts.put(fileTable.column.getName(), insert);
+        }
+    }
 
-        sqlWriter.write(insertHeader);
+    /**
+     * Writes the file records of a cell, or with a companion file table, the
+     * rows of its files.
+     */
+    private void writeFileValue(SqlFileWriter writer, ColumnCodec column, RowBatch batch, int row) throws IOException {
+        var records = batch.getFiles(row, column.index);
+        var fileTableInsert = fileTableInserts.get(column.name);
+
+        if (records == null) {
+            writer.write("NULL");
+        } else if (fileTableInsert != null) {
+            writeFileTableRows(writer, fileTableInsert, batch, row, records);
+        } else {
+            getFileValue(args, Globals.OUTPUT_MYSQL, column.column).writeRecordsSql(writer, records);
+        }
+    }
 
-        boolean isFirstRow = true;
-        boolean isFirstColumn;
-        int insertRows = 0;
+    /**
+     * The records are written as SQL strings, which stream the large inline
+     * payloads; the rows of a companion file table hold the data itself.
+     */
+    @Override
+    boolean streamsInline(ColumnCodec column) {
+        return fileTableInserts.get(column.name) == null;
+    }
 
-        for (Row row : table) {
-            if (!isFirstRow) {
-                sqlWriter.write(", ");
+    /**
+     * Writes the number of files of a row into the parent row and the files
+     * into the rows of the companion table, keyed by the primary key of the
+     * parent row and their position.
+     */
+    private void writeFileTableRows(SqlFileWriter writer, FileTableInsert insert, RowBatch batch, int row, List<FileValue.ValueJsonRecord> records) throws IOException {
+        var fileWriter = insert.writer;
+
+        writer.write(records.size());
+
+        for (int position = 0; position < records.size(); position++) {
+            var record = records.get(position);
+
+            if (!insert.hasRows) {
+                fileWriter.writeln("--");
+                fileWriter.writeln(String.format("-- Dumping data for table `%s`", insert.fileTable.name));
+                fileWriter.writeln("--");
+                fileWriter.writeNewLine();
+                insert.hasRows = true;
+            }
+
+            if (insert.rows == 0) {
+                fileWriter.write(insert.header);
             } else {
-                isFirstRow = false;
+                fileWriter.write(", ");
             }
 
-            isFirstColumn = true;
-            sqlWriter.write("(");
+            fileWriter.write('(');
 
-            for (Column column : table.getColumns()) {
-                String type = column.getType().toString().toUpperCase();
-                String name = column.getName();
+            for (int keyIndex : insert.fileTable.keyIndexes) {
+                writeValue(fileWriter, batch.codec.columns[keyIndex], batch, row, null);
+                fileWriter.write(", ");
+            }
 
-                if (!isFirstColumn) {
-                    sqlWriter.write(", ");
+            fileWriter.write(position);
+            fileWriter.write(", ");
+            writeNullableString(fileWriter, record.name);
+            fileWriter.write(", ");
+            writeNullableString(fileWriter, record.type);
+            fileWriter.write(", ");
+            fileWriter.write(record.size != null ? record.size.toString() : "NULL");
+            fileWriter.write(", ");
+            writeNullableString(fileWriter, record.hash);
+            fileWriter.write(", ");
+            writeNullableString(fileWriter, record.path);
+
+            if (insert.fileTable.withData) {
+                fileWriter.write(", ");
+
+                if (record.data != null && record.data.length > 0) {
+                    fileWriter.write("UNHEX('");
+                    ValueEncoders.writeHex(fileWriter, record.data);
+                    fileWriter.write("')");
                 } else {
-                    isFirstColumn = false;
+                    fileWriter.write("NULL");
                 }
+            }
 
-                try {
-                    switch (type) {
-                        case "BYTE": {
-                            sqlWriter.write(Utils.valueOrNull(row.getByte(name)));
-                            break;
-                        }
-                        case "INT": {
-                            sqlWriter.write(Utils.valueOrNull(row.getShort(name)));
-                            break;
-                        }
-                        case "LONG": {
-                            if (column.isAutoNumber() && autoIncrements.containsKey(tableName)) {
-                                autoIncrements.get(tableName).setMaxId(row.getInt(name));
-                            }
+            fileWriter.write(')');
 
-                            sqlWriter.write(Utils.valueOrNull(row.getInt(name)));
-                            break;
-                        }
-                        case "FLOAT": {
-                            sqlWriter.write(Utils.valueOrNull(row.getFloat(name)));
-                            break;
-                        }
-                        case "DOUBLE": {
-                            sqlWriter.write(Utils.valueOrNull(row.getDouble(name)));
-                            break;
-                        }
-                        case "NUMERIC":
-                        case "MONEY": {
-                            sqlWriter.write(Utils.valueOrNull(row.getBigDecimal(name)));
-                            break;
-                        }
-                        case "BOOLEAN": {
-                            var value = row.getBoolean(name);
+            if (++insert.rows >= maxInsertRows) {
+                fileWriter.writeln(";");
+                insert.rows = 0;
+            }
+        }
+    }
 
-                            if (value == null) {
-                                sqlWriter.write("NULL");
-                            } else {
-                                sqlWriter.write(value ? 1 : 0);
-                            }
+    private void writeNullableString(SqlFileWriter writer, String value) throws IOException {
+        if (value != null) {
+            ValueEncoders.writeSqlString(writer, value);
+        } else {
+            writer.write("NULL");
+        }
+    }
 
-                            break;
-                        }
-                        case "SHORT_DATE_TIME": {
-                            LocalDateTime value = row.getLocalDateTime(name);
-
-                            if (value == null) {
-                                sqlWriter.write("NULL");
-                            } else {
-                                DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-                                sqlWriter.write("'%s'", value.format(format));
-                            }
+    /**
+     * Appends the rows of the companion file tables after the rows of their
+     * parent table.
+     */
+    private void finishFileTableInserts() throws IOException {
+        try {
+            for (FileTableInsert insert : fileTableInserts.values()) {
+                if (insert.rows > 0) {
+                    insert.writer.writeln(";");
+                }
 
-                            break;
-                        }
-                        case "MEMO":
-                        case "GUID":
-                        case "TEXT": {
-                            var value = row.getString(name);
-
-                            if (value == null) {
-                                sqlWriter.write("NULL");
-                            } else {
-                                sqlWriter.write("'%s'", Utils.escapeSingleQuotes(row.getString(name)));
-                            }
+                insert.writer.close();
 
-                            break;
-                        }
-                        case "BINARY": {
-                            byte[] data = row.getBytes(name);
+                if (insert.hasRows) {
+                    sqlWriter.append(insert.file);
+                }
+            }
+        } finally {
+            for (FileTableInsert insert : fileTableInserts.values()) {
+                insert.file.delete();
+            }
 
-                            if (data.length > 0) {
-                                sqlWriter.write("UNHEX('%s')", Hex.encodeHexString(data));
-                            } else {
-                                sqlWriter.write("NULL");
-                            }
+            fileTableInserts.clear();
+        }
+    }
 
-                            break;
-                        }
-                        case "OLE": {
-                            var fileValue = new FileValue(args, Globals.OUTPUT_MYSQL, this);
-
-                            try {
-                                if (fileValue.handleOle(column, row, row.getBlob(name))) {
-                                    var json = fileValue.getRecordsJson();
-                                    sqlWriter.write("'%s'", Utils.escapeSingleQuotes(json));
-                                } else {
-                                    sqlWriter.write("NULL");
-                                }
-                            } catch (IOException e) {
-                                sqlWriter.write("NULL");
-                                Error(
-                                    String.format(
-                                        "Count not fetch OLE data for column '%s' (%s) in table '%s'",
-                                        name, row.getId().hashCode(), tableName
-                                    )
-                                );
-                            }
+    private void writeValue(SqlFileWriter writer, ColumnCodec column, RowBatch batch, int row, AutoIncrement autoIncrement) throws IOException {
+        int index = column.index;
 
-                            break;
-                        }
-                        case "COMPLEX_TYPE": {
-                            if (column.getComplexInfo().getType().name() == "ATTACHMENT") {
-                                try {
-                                    ComplexValueForeignKey valueFk =
-                                        (ComplexValueForeignKey)column.getRowValue(row);
-                                    List<Attachment> attachments = valueFk.getAttachments();
-
-                                    if (!attachments.isEmpty()) {
-                                        var fileValue = new FileValue(args, Globals.OUTPUT_MYSQL, this);
-
-                                        if (fileValue.handleAttachments(column, row, attachments)) {
-                                            var json = fileValue.getRecordsJson();
-                                            sqlWriter.write("'%s'", Utils.escapeSingleQuotes(json));
-                                        } else {
-                                            sqlWriter.write("NULL");
-                                        }
-                                    } else {
-                                        sqlWriter.write("NULL");
-                                    }
-                                } catch (IOException ex) {
-                                    sqlWriter.write("NULL");
-                                    Error(
-                                        String.format(
-                                            "Count not fetch attachments for column '%s' (%s) in table '%s'",
-                                            name, row.getId().hashCode(), tableName
-                                        )
-                                    );
-                                }
-                            } else {
-                                sqlWriter.write("NULL");
-                            }
+        if (batch.isNull(row, index)) {
+            writer.write("NULL");
+            return;
+        }
 
-                            break;
-                        }
-                        default: {
-                            sqlWriter.write("NULL");
-                            break;
-                        }
-                    }
-                } catch (NullPointerException e) {
-                    sqlWriter.write("NULL");
+        switch (column.kind) {
+            case BYTE:
+            case INT: {
+                writer.write(batch.getInt(row, index));
+                break;
+            }
+            case LONG: {
+                int value = batch.getInt(row, index);
+
+                if (column.isAutoNumber && autoIncrement != null) {
+                    autoIncrement.setMaxId(value);
                 }
+
+                writer.write(value);
+                break;
+            }
+            case FLOAT: {
+                writer.write(Float.toString(batch.getFloat(row, index)));
+                break;
             }
+            case DOUBLE: {
+                writer.write(Double.toString(batch.getDouble(row, index)));
+                break;
+            }
+            case DECIMAL: {
+                writer.write(batch.getObject(row, index).toString());
+                break;
+            }
+            case BOOLEAN: {
+                writer.write(batch.getInt(row, index));
+                break;
+            }
+            case DATE_TIME: {
+                ValueEncoders.writeSqlDateTime(writer, batch.getDateTimeMillis(row, index));
+                break;
+            }
+            case TEXT: {
+                ValueEncoders.writeSqlString(writer, (String) batch.getObject(row, index));
+                break;
+            }
+            case BINARY: {
+                byte[] data = (byte[]) batch.getObject(row, index);
 
-            sqlWriter.write(")");
+                if (data.length > 0) {
+                    writer.write("UNHEX('");
+                    ValueEncoders.writeHex(writer, data);
+                    writer.write("')");
+                } else {
+                    writer.write("NULL");
+                }
 
-            if (++insertRows >= maxInsertRows) {
-                sqlWriter.writeln(";");
-                sqlWriter.write(insertHeader);
-                sqlWriter.flush();
-                insertRows = 0;
-                isFirstRow = true;
+                break;
             }
+            case OLE: {
+                Object value = batch.getObject(row, index);
+
+                if (value instanceof ColumnCodec.ReadError) {
+                    writer.write("NULL");
+                    Error(
+                        String.format(
+                            "Count not fetch OLE data for column '%s' (%s) in table '%s'",
+                            column.name, batch.getId(row).hashCode(), column.column.getTable().getName()
+                        )
+                    );
+                    break;
+                }
 
-            AccessConverter.progressStatus.step();
-        }
+                writeFileValue(writer, column, batch, row);
+                break;
+            }
+            case ATTACHMENT: {
+                Object value = batch.getObject(row, index);
+
+                if (value instanceof ColumnCodec.ReadError) {
+                    writer.write("NULL");
+                    Error(
+                        String.format(
+                            "Count not fetch attachments for column '%s' (%s) in table '%s'",
+                            column.name, batch.getId(row).hashCode(), column.column.getTable().getName()
+                        )
+                    );
+                    break;
+                }
 
-        if (!isFirstRow) {
-            sqlWriter.writeln(";");
-            sqlWriter.flush();
+                writeFileValue(writer, column, batch, row);
+                break;
+            }
+            default: {
+                writer.write("NULL");
+                break;
+            }
         }
     }
 
@@ -0,0 +1,252 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2024 Christos Lytras <christos.lytras@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.lytrax.accessconverter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses files on several threads, in the manner of pigz. The input is
+ * split in blocks that are deflated concurrently, each one primed with the
+ * last 32KB of the previous block as its dictionary, and the blocks are
+ * stitched in order into a single deflate stream inside a zip or gzip file.
+ *
+ * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
+ */
+public class ParallelDeflater implements AutoCloseable {
+    public static final int BLOCK_SIZE = 1 << 20;
+
+    private static final int DICTIONARY_SIZE = 1 << 15;
+
+    private final ExecutorService executor;
+    private final int threads;
+    private final int level;
+
+    /**
+     * The CRC and the sizes of a compressed entry.
+     */
+    static class Deflated {
+        long crc;
+        long size;
+        long compressedSize;
+    }
+
+    public ParallelDeflater(int threads, int level) {
+        this.threads = Math.max(threads, 1);
+        this.level = level;
+        executor = Executors.newFixedThreadPool(this.threads, (runnable) -> {
+            Thread thread = new Thread(runnable, "deflater");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Writes a zip archive with an entry for each file, named after the file.
+     */
+    public void writeZip(List<File> files, File zipFile) throws IOException {
+        try (ZipArchive archive = new ZipArchive(zipFile, level)) {
+            for (File file : files) {
+                archive.addFile(file, this);
+            }
+        }
+    }
+
+    /**
+     * Writes a file as a gzip member.
+     */
+    public void writeGzip(File file, File gzipFile) throws IOException {
+        try (FileChannel out = openOutput(gzipFile)) {
+            ByteBuffer header = newBuffer(10);
+            header.put((byte) 0x1f).put((byte) 0x8b).put((byte) 8).put((byte) 0);
+            header.putInt((int) (file.lastModified() / 1000));
+            header.put((byte) 0).put((byte) 3);
+            writeFully(out, header);
+
+            Deflated deflated = deflate(file, out);
+
+            ByteBuffer trailer = newBuffer(8);
+            trailer.putInt((int) deflated.crc);
+            trailer.putInt((int) deflated.size);
+            writeFully(out, trailer);
+        }
+    }
+
+    static FileChannel openOutput(File file) throws IOException {
+        return FileChannel.open(
+            file.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING
+        );
+    }
+
+    static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * Deflates a file to a raw deflate stream. Up to twice as many blocks as
+     * threads are in flight, and the compressed blocks are written in order.
+     */
+    Deflated deflate(File file, FileChannel out) throws IOException {
+        Deflated deflated = new Deflated();
+        CRC32 crc = new CRC32();
+        ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = in.size();
+            byte[] previous = null;
+            long position = 0;
+
+            do {
+                int length = (int) Math.min(BLOCK_SIZE, size - position);
+                byte[] block = new byte[length];
+                ByteBuffer buffer = ByteBuffer.wrap(block);
+
+                while (buffer.hasRemaining()) {
+                    if (in.read(buffer, position + buffer.position()) < 0) {
+                        throw new IOException(String.format("Unexpected end of '%s'", file.getName()));
+                    }
+                }
+
+                crc.update(block, 0, length);
+                position += length;
+
+                byte[] dictionary = previous;
+                boolean isLast = position >= size;
+                pending.add(executor.submit(() -> deflateBlock(block, dictionary, isLast)));
+                previous = block;
+
+                if (pending.size() >= threads * 2) {
+                    deflated.compressedSize += writeBlock(pending.poll(), out);
+                }
+            } while (position < size);
+
+            while (!pending.isEmpty()) {
+                deflated.compressedSize += writeBlock(pending.poll(), out);
+            }
+
+            deflated.size = size;
+        } finally {
+            pending.forEach((future) -> future.cancel(true));
+        }
+
+        deflated.crc = crc.getValue();
+
+        return deflated;
+    }
+
+    private static int writeBlock(Future<byte[]> future, FileChannel out) throws IOException {
+        byte[] compressed;
+
+        try {
+            compressed = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Could not compress block", e.getCause());
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(compressed);
+
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+
+        return compressed.length;
+    }
+
+    /**
+     * Deflates a block, ending it on a byte boundary with a sync flush so the
+     * next block can follow it, or finishing the stream for the last block.
+     */
+    private byte[] deflateBlock(byte[] block, byte[] dictionary, boolean isLast) {
+        Deflater deflater = new Deflater(level, true);
+
+        try {
+            if (dictionary != null) {
+                int length = Math.min(dictionary.length, DICTIONARY_SIZE);
+                deflater.setDictionary(dictionary, dictionary.length - length, length);
+            }
+
+            deflater.setInput(block);
+
+            if (isLast) {
+                deflater.finish();
+            }
+
+            byte[] output = new byte[block.length + (block.length >> 3) + 64];
+            int count = 0;
+
+            while (true) {
+                if (count == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+
+                count += deflater.deflate(
+                    output,
+                    count,
+                    output.length - count,
+                    isLast ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH
+                );
+
+                if (isLast ? deflater.finished() : count < output.length) {
+                    break;
+                }
+            }
+
+            return Arrays.copyOf(output, count);
+        } finally {
+            deflater.end();
+        }
+    }
+}
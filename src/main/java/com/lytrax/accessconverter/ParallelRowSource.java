@@ -0,0 +1,241 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2024 Christos Lytras <christos.lytras@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.lytrax.accessconverter;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.CursorBuilder;
+import com.healthmarketscience.jackcess.DataType;
+import com.healthmarketscience.jackcess.Index;
+import com.healthmarketscience.jackcess.IndexCursor;
+import com.healthmarketscience.jackcess.Row;
+import com.healthmarketscience.jackcess.Table;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads one large table with several threads. The single column integer
+ * primary key is split into contiguous value ranges and each range is scanned
+ * through the primary key index on its own read-only database handle.
+ * The batches are handed to the converter range after range, so the rows come
+ * out in primary key order regardless of the number of threads.
+ *
+ * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
+ */
+public class ParallelRowSource extends RowSource {
+    private final DataType keyType;
+    private final Range[] ranges;
+    private final DatabaseHandles handles = new DatabaseHandles();
+    private int current = 0;
+
+    class Range {
+        final long start;
+        final long end;
+        final boolean endInclusive;
+        final int queueSize;
+        final BlockingQueue<RowBatch> free;
+        final BlockingQueue<RowBatch> filled;
+        final Thread reader;
+        volatile TableCodec codec = null;
+        volatile Exception exception = null;
+
+        Range(int number, long start, long end, boolean endInclusive, int queueSize) {
+            this.start = start;
+            this.end = end;
+            this.endInclusive = endInclusive;
+            this.queueSize = queueSize;
+            this.free = new ArrayBlockingQueue<>(queueSize);
+            this.filled = new ArrayBlockingQueue<>(queueSize + 1);
+            this.reader = new Thread(this::read, "AccessConverter-scan-" + number);
+            this.reader.setDaemon(true);
+        }
+
+        // Runs on the range thread: opens the table on the thread's own handle
+        // and queues the rows of the range. An empty batch marks the end.
+        private void read() {
+            RowBatch batch = null;
+
+            try {
+                Table table = handles.get().getTable(ParallelRowSource.this.codec.table.getName());
+                codec = new TableCodec(table);
+
+                for (int i = 0; i < queueSize; i++) {
+                    free.add(new RowBatch(codec, RowBatch.DEFAULT_CAPACITY));
+                }
+
+                IndexCursor cursor = CursorBuilder.createCursor(
+                    table.getPrimaryKeyIndex(),
+                    new Object[] { toKey(start) }, true,
+                    new Object[] { toKey(end) }, endInclusive
+                );
+
+                batch = free.take();
+                batch.clear();
+
+                for (Row row : cursor) {
+                    batch.add(row);
+
+                    if (batch.isFull()) {
+                        filled.put(batch);
+                        batch = free.take();
+                        batch.clear();
+                    }
+                }
+
+                if (!batch.isEmpty()) {
+                    filled.put(batch);
+                    batch = free.take();
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                exception = e;
+                batch = new RowBatch(ParallelRowSource.this.codec, 1);
+            }
+
+            try {
+                filled.put(batch);
+            } catch (InterruptedException e) {}
+        }
+
+        private Object toKey(long value) {
+            return keyType == DataType.INT ? (Object) (short) value : (Object) (int) value;
+        }
+    }
+
+    ParallelRowSource(TableCodec codec, int threads, int queueSize) throws IOException {
+        super(codec);
+
+        Table table = codec.table;
+        Column keyColumn = table.getPrimaryKeyIndex().getColumns().get(0).getColumn();
+        IndexCursor cursor = CursorBuilder.createPrimaryKeyCursor(table);
+
+        keyType = keyColumn.getType();
+
+        Row first = cursor.getNextRow();
+        cursor.afterLast();
+        Row last = cursor.getPreviousRow();
+        long min = first != null ? ((Number) first.get(keyColumn.getName())).longValue() : 0;
+        long max = last != null ? ((Number) last.get(keyColumn.getName())).longValue() : 0;
+        long span = max - min + 1;
+        int count = (int) Math.max(Math.min(threads, span), 1);
+
+        ranges = new Range[count];
+
+        for (int i = 0; i < count; i++) {
+            long start = min + span * i / count;
+            long end = i + 1 < count ? min + span * (i + 1) / count : max;
+            ranges[i] = new Range(i, start, end, i + 1 == count, queueSize);
+        }
+
+        for (Range range : ranges) {
+            range.reader.start();
+        }
+    }
+
+    /**
+     * Returns true if the table has a single column integer primary key that
+     * its rows can be split on.
+     */
+    public static boolean canSplit(Table table) {
+        Index primaryKey;
+
+        try {
+            primaryKey = table.getPrimaryKeyIndex();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+
+        if (primaryKey.getColumns().size() != 1) {
+            return false;
+        }
+
+        DataType type = primaryKey.getColumns().get(0).getColumn().getType();
+
+        return type == DataType.INT || type == DataType.LONG;
+    }
+
+    @Override
+    public RowBatch next() throws IOException {
+        while (current < ranges.length) {
+            Range range = ranges[current];
+            RowBatch batch;
+
+            try {
+                batch = range.filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for table rows", e);
+            }
+
+            if (!batch.isEmpty()) {
+                return batch;
+            }
+
+            current++;
+
+            if (range.exception != null) {
+                current = ranges.length;
+
+                throw new IOException(
+                    String.format("Could not read rows of table '%s'", codec.table.getName()),
+                    range.exception
+                );
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public void release(RowBatch batch) {
+        for (Range range : ranges) {
+            if (range.codec == batch.codec) {
+                range.free.offer(batch);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Range range : ranges) {
+            if (range.reader.isAlive()) {
+                range.reader.interrupt();
+            }
+        }
+
+        for (Range range : ranges) {
+            try {
+                range.reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        handles.close();
+    }
+}
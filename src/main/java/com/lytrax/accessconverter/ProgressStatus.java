@@ -45,6 +45,14 @@ public class ProgressStatus {
     public int currentRow;
     public Database db;
 
+    /**
+     * The tables converted concurrently, see {@link #startTables}; 0 while
+     * the tables are converted one at a time.
+     */
+    private int concurrentTables = 0;
+    private int concurrentTablesDone = 0;
+    private int concurrentStartRow;
+
     private long updateCheck;
     private int updateIntervalMillis;
     private short dotMarkCount = 0;
@@ -73,17 +81,17 @@ public class ProgressStatus {
         this.enabled = AccessConverter.args.GetFlag("show-progress");
     }
 
-    public void resetLine() {
+    public synchronized void resetLine() {
         if (!enabled) {
             return;
         }
 
-        System.out.printf("\r%s", StringUtils.repeat(" ", status.length() + dotMarkCount));
-        System.out.print('\r');
-        System.out.flush();
+        AccessConverter.console.printf("\r%s", StringUtils.repeat(" ", status.length() + dotMarkCount));
+        AccessConverter.console.print('\r');
+        AccessConverter.console.flush();
     }
 
-    public void startTable(Table tbl) {
+    public synchronized void startTable(Table tbl) {
         if (!enabled) {
             return;
         }
@@ -94,7 +102,7 @@ public class ProgressStatus {
         progress(true);
     }
 
-    public void endTable() {
+    public synchronized void endTable() {
         if (!enabled) {
             return;
         }
@@ -106,11 +114,49 @@ public class ProgressStatus {
         progress(true);
     }
 
+    /**
+     * Starts tables converted concurrently. Their workers call {@link #step},
+     * the rows of all of them counted as one table, instead of startTable and
+     * endTable; {@link #tableDone} is called as each table completes and
+     * {@link #endTables} once all are.
+     */
+    public synchronized void startTables(int tables, int rows) {
+        if (!enabled) {
+            return;
+        }
+
+        this.concurrentTables = tables;
+        this.concurrentTablesDone = 0;
+        this.concurrentStartRow = currentRow;
+        this.currentTableTotalRows = rows;
+        this.currentTableCurrentRow = 0;
+        progress(true);
+    }
+
+    public synchronized void tableDone() {
+        if (!enabled) {
+            return;
+        }
+
+        concurrentTablesDone++;
+        progress(true);
+    }
+
+    public synchronized void endTables() {
+        if (!enabled) {
+            return;
+        }
+
+        currentRow = concurrentStartRow + currentTableTotalRows;
+        concurrentTables = 0;
+        progress(true);
+    }
+
     public void step() {
         step(1);
     }
 
-    public void step(int steps) {
+    public synchronized void step(int steps) {
         if (!enabled) {
             return;
         }
@@ -123,11 +169,20 @@ public class ProgressStatus {
     private void progress(boolean doUpdate) {
         float percent = (float) (currentRow > 0 && totalRows > 0 ? ((double)currentRow / (double)totalRows) * 100.0 : 0);
 
-        status = String.format("Total progress: %.1f%%; Table `%s` %d/%d",
-                percent,
-                currentTable,
-                currentTableCurrentRow,
-                currentTableTotalRows);
+        if (concurrentTables > 0) {
+            status = String.format("Total progress: %.1f%%; Tables %d/%d, rows %d/%d",
+                    percent,
+                    concurrentTablesDone,
+                    concurrentTables,
+                    currentTableCurrentRow,
+                    currentTableTotalRows);
+        } else {
+            status = String.format("Total progress: %.1f%%; Table `%s` %d/%d",
+                    percent,
+                    currentTable,
+                    currentTableCurrentRow,
+                    currentTableTotalRows);
+        }
 
         if (doUpdate) {
             update();
@@ -135,7 +190,7 @@ public class ProgressStatus {
     }
 
     // Calculate the working dots and print the status
-    public void update() {
+    public synchronized void update() {
         if (!enabled) {
             return;
         }
@@ -154,8 +209,8 @@ public class ProgressStatus {
 
         resetCharsLength = Math.max(resetCharsLength, output.toString().length() + maxDotMarks - dotMarkCount);
 
-        System.out.print(StringUtils.rightPad(output.toString(), resetCharsLength));
-        System.out.flush();
+        AccessConverter.console.print(StringUtils.rightPad(output.toString(), resetCharsLength));
+        AccessConverter.console.flush();
 
         if (dotMarkCount >= maxDotMarks) {
             dotMarkCount = 0;
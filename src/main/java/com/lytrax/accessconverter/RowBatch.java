@@ -0,0 +1,267 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2024 Christos Lytras <christos.lytras@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.lytrax.accessconverter;
+
+import com.healthmarketscience.jackcess.Row;
+import com.healthmarketscience.jackcess.RowId;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * A block of decoded table rows handed from the table reader to a converter.
+ *
+ * The values are stored by column. Numeric, boolean and date columns are kept
+ * in primitive arrays (dates as epoch milliseconds of the local date time),
+ * all other columns keep references to the decoded values. Null values are
+ * tracked in a bitmap per column. The arrays are allocated once and reused
+ * every time the batch is filled again.
+ *
+ * The files of the attachment and OLE cells are extracted once per batch, see
+ * {@link Converter#extractFiles}, and their records are kept by cell, so every
+ * output the batch is passed to gets the same records.
+ *
+ * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
+ */
+public class RowBatch {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    public final TableCodec codec;
+    public final int capacity;
+    public int size = 0;
+    private final RowId[] ids;
+    private final long[][] nulls;
+    private final int[][] ints;
+    private final long[][] longs;
+    private final float[][] floats;
+    private final double[][] doubles;
+    private final Object[][] objects;
+    private final Object[][] files;
+    public boolean filesExtracted = false;
+    /**
+     * The files of the batch being written in the background, in row order.
+     */
+    public final ArrayDeque<FileValue.PendingWrite> pendingWrites = new ArrayDeque<>();
+
+    public RowBatch(TableCodec codec, int capacity) {
+        int columnCount = codec.columns.length;
+
+        this.codec = codec;
+        this.capacity = capacity;
+        this.ids = new RowId[capacity];
+        this.nulls = new long[columnCount][(capacity + 63) >>> 6];
+        this.ints = new int[columnCount][];
+        this.longs = new long[columnCount][];
+        this.floats = new float[columnCount][];
+        this.doubles = new double[columnCount][];
+        this.objects = new Object[columnCount][];
+        this.files = new Object[columnCount][];
+
+        for (ColumnCodec column : codec.columns) {
+            switch (column.kind) {
+                case BYTE:
+                case INT:
+                case LONG:
+                case BOOLEAN: {
+                    ints[column.index] = new int[capacity];
+                    break;
+                }
+                case FLOAT: {
+                    floats[column.index] = new float[capacity];
+                    break;
+                }
+                case DOUBLE: {
+                    doubles[column.index] = new double[capacity];
+                    break;
+                }
+                case DATE_TIME: {
+                    longs[column.index] = new long[capacity];
+                    break;
+                }
+                default: {
+                    objects[column.index] = new Object[capacity];
+                    break;
+                }
+            }
+
+            if (column.kind == ColumnCodec.Kind.OLE || column.kind == ColumnCodec.Kind.ATTACHMENT) {
+                files[column.index] = new Object[capacity];
+            }
+        }
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+        filesExtracted = false;
+        pendingWrites.clear();
+    }
+
+    /**
+     * Decodes a table row into the next free slot of the batch.
+     */
+    public void add(Row row) {
+        ColumnCodec[] columns = codec.columns;
+        int index = size;
+
+        ids[index] = row.getId();
+
+        if (row.size() == columns.length) {
+            int i = 0;
+
+            for (Object value : row.values()) {
+                set(columns[i++], index, value);
+            }
+        } else {
+            for (ColumnCodec column : columns) {
+                set(column, index, row.get(column.name));
+            }
+        }
+
+        size++;
+    }
+
+    private void set(ColumnCodec column, int row, Object value) {
+        int col = column.index;
+        long[] columnNulls = nulls[col];
+
+        if (value == null || column.kind == ColumnCodec.Kind.UNSUPPORTED) {
+            columnNulls[row >>> 6] |= 1L << row;
+
+            if (objects[col] != null) {
+                objects[col][row] = null;
+            }
+
+            return;
+        }
+
+        columnNulls[row >>> 6] &= ~(1L << row);
+
+        switch (column.kind) {
+            case BYTE: {
+                ints[col][row] = (Byte) value;
+                break;
+            }
+            case INT: {
+                ints[col][row] = (Short) value;
+                break;
+            }
+            case LONG: {
+                ints[col][row] = (Integer) value;
+                break;
+            }
+            case BOOLEAN: {
+                ints[col][row] = (Boolean) value ? 1 : 0;
+                break;
+            }
+            case FLOAT: {
+                floats[col][row] = (Float) value;
+                break;
+            }
+            case DOUBLE: {
+                doubles[col][row] = (Double) value;
+                break;
+            }
+            case DATE_TIME: {
+                LocalDateTime dateTime = (LocalDateTime) value;
+                longs[col][row] = dateTime.toEpochSecond(ZoneOffset.UTC) * 1000L + dateTime.getNano() / 1000000;
+                break;
+            }
+            default: {
+                objects[col][row] = column.read(value);
+                break;
+            }
+        }
+    }
+
+    public RowId getId(int row) {
+        return ids[row];
+    }
+
+    public boolean isNull(int row, int column) {
+        return (nulls[column][row >>> 6] & (1L << row)) != 0;
+    }
+
+    public int getInt(int row, int column) {
+        return ints[column][row];
+    }
+
+    public boolean getBoolean(int row, int column) {
+        return ints[column][row] != 0;
+    }
+
+    public float getFloat(int row, int column) {
+        return floats[column][row];
+    }
+
+    public double getDouble(int row, int column) {
+        return doubles[column][row];
+    }
+
+    /**
+     * Returns a date time value as milliseconds since 1970-01-01T00:00:00 of the local date time.
+     */
+    public long getDateTimeMillis(int row, int column) {
+        return longs[column][row];
+    }
+
+    public LocalDateTime getDateTime(int row, int column) {
+        long millis = longs[column][row];
+
+        return LocalDateTime.ofEpochSecond(
+            Math.floorDiv(millis, 1000L),
+            (int) Math.floorMod(millis, 1000L) * 1000000,
+            ZoneOffset.UTC
+        );
+    }
+
+    /**
+     * Returns the decoded value of a reference column (decimal, text, binary, OLE and attachments).
+     */
+    public Object getObject(int row, int column) {
+        return objects[column][row];
+    }
+
+    /**
+     * Returns the file records of an attachment or OLE cell, or null if the
+     * cell has no files or they could not be extracted.
+     */
+    @SuppressWarnings("unchecked")
+    public List<FileValue.ValueJsonRecord> getFiles(int row, int column) {
+        return (List<FileValue.ValueJsonRecord>) files[column][row];
+    }
+
+    public void setFiles(int row, int column, List<FileValue.ValueJsonRecord> records) {
+        files[column][row] = records;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2024 Christos Lytras <christos.lytras@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.lytrax.accessconverter;
+
+import com.healthmarketscience.jackcess.Row;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Supplies the decoded rows of a table to a converter in batches.
+ * By default the rows are read on the calling thread. With the "-pipeline" flag
+ * a reader thread decodes the table into a bounded queue of batches while the
+ * converter writes the previous ones, so decoding and writing overlap.
+ * With the "-parallel-scan" flag large tables are split on their primary key
+ * and read by several threads, see {@link ParallelRowSource}.
+ *
+ * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
+ */
+public abstract class RowSource implements AutoCloseable {
+    public static final int DEFAULT_PIPELINE_QUEUE = 8;
+    public static final int DEFAULT_PARALLEL_SCAN_ROWS = 100000;
+
+    public final TableCodec codec;
+
+    protected RowSource(TableCodec codec) {
+        this.codec = codec;
+    }
+
+    public static RowSource open(Args args, TableCodec codec) throws IOException {
+        if (
+            args.HasFlag("parallel-scan") &&
+            codec.table.getRowCount() >= Integer.parseInt(
+                args.GetOption("parallel-scan-rows", String.valueOf(DEFAULT_PARALLEL_SCAN_ROWS))
+            ) &&
+            ParallelRowSource.canSplit(codec.table)
+        ) {
+            int queueSize = Integer.parseInt(
+                args.GetOption("pipeline-queue", String.valueOf(DEFAULT_PIPELINE_QUEUE))
+            );
+
+            return new ParallelRowSource(codec, AccessConverter.getThreads(), Math.max(queueSize, 1));
+        }
+
+        if (args.HasFlag("pipeline")) {
+            int queueSize = Integer.parseInt(
+                args.GetOption("pipeline-queue", String.valueOf(DEFAULT_PIPELINE_QUEUE))
+            );
+
+            return new PipelineRowSource(codec, RowBatch.DEFAULT_CAPACITY, Math.max(queueSize, 1));
+        }
+
+        return new DirectRowSource(codec, RowBatch.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Returns the next batch of rows or null when the table has no more rows.
+     * The batch must be given back with {@link #release(RowBatch)} once it has been written.
+     */
+    public abstract RowBatch next() throws IOException;
+
+    public abstract void release(RowBatch batch);
+
+    @Override
+    public void close() {}
+
+    static class DirectRowSource extends RowSource {
+        private final Iterator<Row> rows;
+        private final RowBatch batch;
+
+        DirectRowSource(TableCodec codec, int batchRows) {
+            super(codec);
+            this.rows = codec.table.iterator();
+            this.batch = new RowBatch(codec, batchRows);
+        }
+
+        @Override
+        public RowBatch next() throws IOException {
+            batch.clear();
+
+            try {
+                while (!batch.isFull() && rows.hasNext()) {
+                    batch.add(rows.next());
+                }
+            } catch (RuntimeException e) {
+                throw new IOException(String.format("Could not read rows of table '%s'", codec.table.getName()), e);
+            }
+
+            return batch.isEmpty() ? null : batch;
+        }
+
+        @Override
+        public void release(RowBatch batch) {}
+    }
+
+    static class PipelineRowSource extends RowSource {
+        private final BlockingQueue<RowBatch> free;
+        private final BlockingQueue<RowBatch> filled;
+        private final Thread reader;
+        private volatile Exception readerException = null;
+        private boolean finished = false;
+
+        PipelineRowSource(TableCodec codec, int batchRows, int queueSize) {
+            super(codec);
+            this.free = new ArrayBlockingQueue<>(queueSize);
+            this.filled = new ArrayBlockingQueue<>(queueSize + 1);
+
+            for (int i = 0; i < queueSize; i++) {
+                free.add(new RowBatch(codec, batchRows));
+            }
+
+            this.reader = new Thread(this::read, "AccessConverter-reader");
+            this.reader.setDaemon(true);
+            this.reader.start();
+        }
+
+        // Runs on the reader thread: fills free batches and queues them in table order.
+        // An empty batch marks the end of the table.
+        private void read() {
+            RowBatch batch = null;
+
+            try {
+                batch = free.take();
+                batch.clear();
+
+                for (Row row : codec.table) {
+                    batch.add(row);
+
+                    if (batch.isFull()) {
+                        filled.put(batch);
+                        batch = free.take();
+                        batch.clear();
+                    }
+                }
+
+                if (!batch.isEmpty()) {
+                    filled.put(batch);
+                    batch = free.take();
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                readerException = e;
+
+                if (batch == null) {
+                    batch = new RowBatch(codec, 1);
+                }
+
+                batch.clear();
+            }
+
+            try {
+                filled.put(batch);
+            } catch (InterruptedException e) {}
+        }
+
+        @Override
+        public RowBatch next() throws IOException {
+            if (finished) {
+                return null;
+            }
+
+            RowBatch batch;
+
+            try {
+                batch = filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for table rows", e);
+            }
+
+            if (batch.isEmpty()) {
+                finished = true;
+
+                if (readerException != null) {
+                    throw new IOException(
+                        String.format("Could not read rows of table '%s'", codec.table.getName()),
+                        readerException
+                    );
+                }
+
+                return null;
+            }
+
+            return batch;
+        }
+
+        @Override
+        public void release(RowBatch batch) {
+            free.offer(batch);
+        }
+
+        @Override
+        public void close() {
+            if (reader.isAlive()) {
+                reader.interrupt();
+            }
+
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
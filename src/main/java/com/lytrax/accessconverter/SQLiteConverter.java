@@ -28,27 +28,26 @@ import com.healthmarketscience.jackcess.Database;
 import com.healthmarketscience.jackcess.Index;
 import com.healthmarketscience.jackcess.PropertyMap;
 import com.healthmarketscience.jackcess.Relationship;
-import com.healthmarketscience.jackcess.Row;
 import com.healthmarketscience.jackcess.Table;
-import com.healthmarketscience.jackcess.complex.Attachment;
-import com.healthmarketscience.jackcess.complex.ComplexValueForeignKey;
 
 import java.io.File;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 import org.apache.commons.lang3.tuple.Triple;
 import org.apache.commons.text.TextStringBuilder;
@@ -57,11 +56,45 @@ import org.apache.commons.text.TextStringBuilder;
  *
  * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
  */
-public class SQLiteConverter extends Converter {
+public class SQLiteConverter extends Converter implements TableSink {
+    public static final int DEFAULT_BATCH_ROWS = 500;
+
+    /**
+     * Settings applied while bulk loading: the rollback journal is kept in
+     * memory, nothing is fsynced and the database file is locked exclusively
+     * until the connection settings are restored.
+     */
+    private static final String[] BULK_LOAD_PRAGMAS = {
+        "PRAGMA journal_mode = MEMORY",
+        "PRAGMA synchronous = OFF",
+        "PRAGMA cache_size = -65536",
+        "PRAGMA temp_store = MEMORY",
+        "PRAGMA locking_mode = EXCLUSIVE"
+    };
+
+    private static final String[] SAFE_PRAGMAS = {
+        "PRAGMA locking_mode = NORMAL",
+        "PRAGMA journal_mode = DELETE",
+        "PRAGMA synchronous = FULL",
+        "PRAGMA temp_store = DEFAULT",
+        "PRAGMA cache_size = -2000"
+    };
+
     public Database db;
     public Args args;
     public File sqliteFile;
     private Connection connection = null;
+    private boolean bulkLoad = false;
+    private int commitRows = 0;
+    private boolean deferIndexes = false;
+    private Table insertTable = null;
+    private PreparedStatement insertStatement = null;
+    private int batchCount = 0;
+    private int uncommittedRows = 0;
+    private int autoIncrement = -1;
+    private boolean hasAutoIncrement = false;
+    private Map<String, FileTable> fileTables = new HashMap<>();
+    private Map<String, PreparedStatement> fileTableStatements = new HashMap<>();
 
     public SQLiteConverter(Args args, Database db, File sqliteFile) {
         this.args = args;
@@ -70,29 +103,20 @@ public class SQLiteConverter extends Converter {
     }
 
     public boolean toSQLiteFile() {
-        boolean result = false;
         final String methodName = "toSQLiteFile";
 
-        try {
-            Class.forName("org.sqlite.JDBC");
-        } catch (ClassNotFoundException e) {
-            Error("Coud not load class org.sqlite.JDBC", e, methodName);
+        if (!open()) {
             return false;
         }
 
         try {
-            connection = DriverManager.getConnection(String.format("jdbc:sqlite:%s", sqliteFile.getAbsolutePath()));
             Set<String> tableNames = db.getTableNames();
 
             tableNames.forEach((tableName) -> {
                 try {
                     Table table = db.getTable(tableName);
                     AccessConverter.progressStatus.startTable(table);
-                    if (!createTable(table)) {
-                        Log(String.format("Could not create table schema '%s'", tableName), methodName);
-                    } else {
-                        insertData(table);
-                    }
+                    addTable(table);
                     AccessConverter.progressStatus.endTable();
                 } catch (IOException e) {
                     Error(String.format("Could not load table '%s'", tableName), e, methodName);
@@ -100,17 +124,172 @@ public class SQLiteConverter extends Converter {
             });
 
             AccessConverter.progressStatus.resetLine();
-
-            result = true;
         } catch (IOException e) {
             Error("Could not fetch tables from the database", e, methodName);
+            close();
+            return false;
+        }
+
+        return close();
+    }
+
+    @Override
+    public boolean open() {
+        final String methodName = "open";
+
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            Error("Coud not load class org.sqlite.JDBC", e, methodName);
+            return false;
+        }
+
+        try {
+            connection = DriverManager.getConnection(String.format("jdbc:sqlite:%s", sqliteFile.getAbsolutePath()));
+            deferIndexes = args.HasFlag("sqlite-deferred-indexes");
+
+            if (args.HasFlag("sqlite-bulk-load")) {
+                bulkLoad = true;
+                commitRows = Math.max(Integer.parseInt(args.GetOption("sqlite-commit-rows", "0")), 0);
+                executePragmas(BULK_LOAD_PRAGMAS);
+            }
+
+            return true;
         } catch (SQLException e) {
             Error(String.format("SQLite database creation/execution error '%s'", sqliteFile.getName()), e, methodName);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean startTable(Table table) throws IOException {
+        fileTables = FileTable.resolve(args, table);
+
+        if (!createTable(table)) {
+            Log(String.format("Could not create table schema '%s'", table.getName()), "startTable");
+            return false;
+        }
+
+        startInsert(table);
+
+        return true;
+    }
+
+    @Override
+    public void addRows(RowBatch batch) {
+        if (insertStatement == null) {
+            return;
+        }
+
+        extractFiles(args, Globals.OUTPUT_SQLITE, batch);
+
+        try {
+            for (int row = 0; row < batch.size; row++) {
+                awaitFileWrites(batch, row);
+
+                for (ColumnCodec column : batch.codec.columns) {
+                    if (
+                        column.kind == ColumnCodec.Kind.LONG &&
+                        column.isAutoNumber &&
+                        !batch.isNull(row, column.index)
+                    ) {
+                        hasAutoIncrement = true;
+                        autoIncrement = Math.max(autoIncrement, batch.getInt(row, column.index));
+                    }
+
+                    setValue(insertStatement, column.index + 1, column, batch, row);
+                }
+
+                insertStatement.addBatch();
+
+                if (++batchCount == DEFAULT_BATCH_ROWS) {
+                    executeBatches();
+                    batchCount = 0;
+                }
+
+                if (bulkLoad && commitRows > 0 && ++uncommittedRows == commitRows) {
+                    executeBatches();
+                    connection.commit();
+                    batchCount = 0;
+                    uncommittedRows = 0;
+                }
+            }
+        } catch (SQLException e) {
+            Error(String.format("Could not insert data into table '%s'", insertTable.getName()), e, "addRows");
+            abortInsert();
+        }
+    }
+
+    @Override
+    public void endTable(Table table) {
+        if (insertStatement != null) {
+            finishInsert();
+        }
+
+        if (deferIndexes) {
+            createIndexes(table);
+        }
+    }
+
+    @Override
+    public boolean close() {
+        final String methodName = "close";
+        boolean result = true;
+
+        if (connection == null) {
+            return false;
+        }
+
+        if (bulkLoad) {
+            try {
+                executePragmas(SAFE_PRAGMAS);
+            } catch (SQLException e) {
+                Error("Could not restore the SQLite database settings after bulk loading", e, methodName);
+                result = false;
+            }
+        }
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            Error(String.format("Could not close the SQLite database '%s'", sqliteFile.getName()), e, methodName);
+            result = false;
         }
 
         return result;
     }
 
+    private void addTable(Table table) throws IOException {
+        if (!startTable(table)) {
+            return;
+        }
+
+        if (insertStatement != null) {
+            try (RowSource source = RowSource.open(args, new TableCodec(table))) {
+                RowBatch batch;
+
+                while ((batch = source.next()) != null) {
+                    addRows(batch);
+                    AccessConverter.progressStatus.step(batch.size);
+                    source.release(batch);
+                }
+            } catch (IOException e) {
+                Error(String.format("Could not read data of table '%s'", table.getName()), e, "addTable");
+                abortInsert();
+            }
+        }
+
+        endTable(table);
+    }
+
+    private void executePragmas(String[] pragmas) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String pragma : pragmas) {
+                statement.execute(pragma);
+            }
+        }
+    }
+
     private boolean createTable(Table table) throws IOException {
         final String methodName = "createTable";
         List<String> primaryKeys = new ArrayList<>();
@@ -143,7 +322,10 @@ public class SQLiteConverter extends Converter {
                 columnRequired = ((Boolean)column.getProperties().getValue(PropertyMap.REQUIRED_PROP, false));
             } catch (IOException e) {}
 
-            var columnTypeDef = getColumnType(type, defaultValue);
+            var columnTypeDef = fileTables.containsKey(column.getName())
+                // The files are stored in the companion table, the column holds their number
+                ? Triple.of("INTEGER", (String) null, (Boolean) null)
+                : getColumnType(type, defaultValue);
             var columnType = columnTypeDef.getLeft();
             var useDefaultValue = columnTypeDef.getMiddle();
 
@@ -211,25 +393,19 @@ public class SQLiteConverter extends Converter {
             )
         );
 
+        for (FileTable fileTable : fileTables.values()) {
+            statements.add(getFileTableStatement(fileTable));
+        }
+
         // Make indexes
 
-        for (Index idx : table.getIndexes()) {
-            if (idx.isPrimaryKey()) {
-                // PK is already handled
-                continue;
+        if (!deferIndexes) {
+            for (Index idx : table.getIndexes()) {
+                if (!idx.isPrimaryKey()) {
+                    // PK is already handled
+                    statements.add(getIndexStatement(table, idx));
+                }
             }
-
-            var columnNames = idx.getColumns().stream().map(c -> "`" + c.getName() + "`").collect(Collectors.toList());
-
-            statements.add(
-                String.format(
-                    "%s INDEX `%s` ON `%s` (%s)",
-                    idx.isUnique() ? "CREATE UNIQUE" : "CREATE",
-                    String.format("%s_%s", table.getName(), idx.getName()),
-                    table.getName(),
-                    String.join(", ", columnNames)
-                )
-            );
         }
 
         // Execute SQL statements
@@ -246,6 +422,115 @@ public class SQLiteConverter extends Converter {
         return true;
     }
 
+    private String getFileTableStatement(FileTable fileTable) {
+        List<String> body = new ArrayList<>();
+        var keyColumns = Utils.quoteSqlNames(fileTable.getKeyColumnNames());
+
+        for (Column keyColumn : fileTable.keyColumns) {
+            var keyType = getColumnType(keyColumn.getType().toString().toUpperCase(), null).getLeft();
+            body.add(String.format("`%s` %s NOT NULL", keyColumn.getName(), keyType));
+        }
+
+        body.add("`position` INTEGER NOT NULL");
+        body.add("`file_name` VARCHAR(255)");
+        body.add("`file_type` VARCHAR(255)");
+        body.add("`file_size` INTEGER");
+        body.add("`file_hash` VARCHAR(64)");
+        body.add("`file_path` TEXT");
+
+        if (fileTable.withData) {
+            body.add(String.format("`%s` BLOB", FileTable.DATA_COLUMN));
+        }
+
+        body.add(String.format("PRIMARY KEY (%s, `position`)", String.join(", ", keyColumns)));
+        body.add(
+            String.format(
+                "FOREIGN KEY (%s) REFERENCES `%s` (%s) ON DELETE CASCADE",
+                String.join(", ", keyColumns),
+                fileTable.table.getName(),
+                String.join(", ", keyColumns)
+            )
+        );
+
+        return String.format("CREATE TABLE `%s` (%s)", fileTable.name, String.join(", \n", body));
+    }
+
+    private String getIndexStatement(Table table, Index idx) {
+        var columnNames = idx.getColumns().stream().map(c -> "`" + c.getName() + "`").collect(Collectors.toList());
+
+        return String.format(
+            "%s INDEX `%s` ON `%s` (%s)",
+            idx.isUnique() ? "CREATE UNIQUE" : "CREATE",
+            String.format("%s_%s", table.getName(), idx.getName()),
+            table.getName(),
+            String.join(", ", columnNames)
+        );
+    }
+
+    /**
+     * Builds the secondary indexes of a table after its rows have been loaded,
+     * so SQLite can sort each index once instead of updating it on every
+     * insert. A unique index that fails because of duplicate keys is reported
+     * with the number of duplicated keys and rows, and the remaining indexes
+     * are still created.
+     */
+    private boolean createIndexes(Table table) {
+        final String methodName = "createIndexes";
+        boolean result = true;
+
+        for (Index idx : table.getIndexes()) {
+            if (idx.isPrimaryKey()) {
+                continue;
+            }
+
+            String sql = getIndexStatement(table, idx);
+
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate(sql);
+            } catch (SQLException e) {
+                result = false;
+
+                if (idx.isUnique()) {
+                    Error(
+                        String.format(
+                            "Could not create unique index '%s' on table '%s'%s",
+                            idx.getName(), table.getName(), getDuplicateKeysInfo(table, idx)
+                        ),
+                        e, methodName, sql
+                    );
+                } else {
+                    Error(String.format("Could not create index '%s' on table '%s'", idx.getName(), table.getName()), e, methodName, sql);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private String getDuplicateKeysInfo(Table table, Index idx) {
+        var columnNames = Utils.quoteSqlNames(idx.getColumns().stream().map(Index.Column::getName).collect(Collectors.toList()));
+        var notNull = columnNames.stream().map(c -> c + " IS NOT NULL").collect(Collectors.toList());
+        String sql = String.format(
+            "SELECT COUNT(*), SUM(`rows`) FROM (SELECT COUNT(*) AS `rows` FROM `%s` WHERE %s GROUP BY %s HAVING COUNT(*) > 1)",
+            table.getName(),
+            String.join(" AND ", notNull),
+            String.join(", ", columnNames)
+        );
+
+        try (
+            Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery(sql);
+        ) {
+            if (resultSet.next() && resultSet.getLong(1) > 0) {
+                return String.format(": %d duplicate keys in %d rows", resultSet.getLong(1), resultSet.getLong(2));
+            }
+        } catch (SQLException e) {
+            Error(String.format("Could not count the duplicate keys of index '%s' on table '%s'", idx.getName(), table.getName()), e, "getDuplicateKeysInfo", sql);
+        }
+
+        return "";
+    }
+
     private String getDefaultValue(String dataDefaultValue, String genDefaultValue, Boolean quotetion) {
         var value = dataDefaultValue != null ? dataDefaultValue : genDefaultValue;
 
@@ -287,14 +572,11 @@ public class SQLiteConverter extends Converter {
         };
     }
 
-    private boolean insertData(Table table) {
-        final String methodName = "insertData";
-        boolean result = false;
-
-        if (table.getRowCount() == 0)
-            return true;
+    private void startInsert(Table table) {
+        if (table.getRowCount() == 0) {
+            return;
+        }
 
-        String tableName = table.getName();
         TextStringBuilder sql = new TextStringBuilder();
         List<String> columnNames = table.getColumns()
             .stream()
@@ -303,191 +585,288 @@ public class SQLiteConverter extends Converter {
 
         sql.append(
             "INSERT INTO `%s` (%s) VALUES (%s)",
-            tableName,
+            table.getName(),
             String.join(", ", Utils.quoteSqlNames(columnNames)),
             String.join(", ", new ArrayList<String>(Collections.nCopies(table.getColumns().size(), "?")))
         );
 
-        int autoIncrement = -1;
-        boolean hasAutoIncrement = false;
+        try {
+            insertStatement = connection.prepareStatement(sql.build());
+            insertTable = table;
+
+            for (FileTable fileTable : fileTables.values()) {
+                var fileColumnNames = fileTable.getColumnNames();
+
+                fileTableStatements.put(
+                    fileTable.column.getName(),
+                    connection.prepareStatement(
+                        String.format(
+                            "INSERT INTO `%s` (%s) VALUES (%s)",
+                            fileTable.name,
+                            String.join(", ", Utils.quoteSqlNames(fileColumnNames)),
+                            String.join(", ", Collections.nCopies(fileColumnNames.size(), "?"))
+                        )
+                    )
+                );
+            }
 
-        try (
-            Statement statement = connection.createStatement();
-            PreparedStatement ps = connection.prepareStatement(sql.build());
-        ) {
+            connection.setAutoCommit(!bulkLoad);
+        } catch (SQLException e) {
+            Error(String.format("Could not create statement for table '%s'", table.getName()), e, "startInsert");
+            closeInsert();
+            return;
+        }
+
+        batchCount = 0;
+        uncommittedRows = 0;
+        autoIncrement = -1;
+        hasAutoIncrement = false;
+    }
+
+    private void finishInsert() {
+        try (Statement statement = connection.createStatement()) {
+            executeBatches();
+
+            if (hasAutoIncrement) {
+                statement.executeUpdate(String.format("UPDATE SQLITE_SEQUENCE SET seq = %d WHERE name = '%s'", autoIncrement, insertTable.getName()));
+            }
+
+            if (bulkLoad) {
+                connection.commit();
+            }
+        } catch (SQLException e) {
+            Error(String.format("Could not create statement for table '%s'", insertTable.getName()), e, "finishInsert");
+            rollbackBulkLoad(insertTable);
+        } finally {
+            closeInsert();
+        }
+    }
+
+    /**
+     * Executes the batched rows of the table and of its companion file tables.
+     */
+    private void executeBatches() throws SQLException {
+        insertStatement.executeBatch();
+
+        for (PreparedStatement statement : fileTableStatements.values()) {
+            statement.executeBatch();
+        }
+    }
+
+    private void abortInsert() {
+        if (insertStatement != null) {
+            rollbackBulkLoad(insertTable);
+            closeInsert();
+        }
+    }
+
+    private void closeInsert() {
+        final String methodName = "closeInsert";
+
+        try {
+            if (insertStatement != null) {
+                insertStatement.close();
+            }
+        } catch (SQLException e) {
+            Error("Could not close the insert statement", e, methodName);
+        }
+
+        for (PreparedStatement statement : fileTableStatements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                Error("Could not close the insert statement of a files table", e, methodName);
+            }
+        }
+
+        fileTableStatements.clear();
+
+        try {
             connection.setAutoCommit(true);
-            sql.clear();
-
-            int batchCount = 0;
-
-            for (Row row : table) {
-                for (Column column : table.getColumns()) {
-                    var type = column.getType().toString().toUpperCase();
-                    var name = column.getName();
-                    var columnIndex = column.getColumnIndex() + 1;
-
-                    try {
-                        switch (type) {
-                            case "BYTE": {
-                                ps.setByte(columnIndex, row.getByte(name).byteValue());
-                                break;
-                            }
-                            case "INT": {
-                                ps.setInt(columnIndex, row.getShort(name).shortValue());
-                                break;
-                            }
-                            case "LONG": {
-                                if (column.isAutoNumber()) {
-                                    hasAutoIncrement = true;
-                                    autoIncrement = Math.max(autoIncrement, row.getInt(name));
-                                }
-
-                                ps.setInt(columnIndex, row.getInt(name).intValue());
-                                break;
-                            }
-                            case "FLOAT": {
-                                ps.setFloat(columnIndex, Globals.defaultIfNullFloat(row.getFloat(name)));
-                                break;
-                            }
-                            case "DOUBLE": {
-                                ps.setDouble(columnIndex, Globals.defaultIfNullDouble(row.getDouble(name)));
-                                break;
-                            }
-                            case "NUMERIC":
-                            case "MONEY": {
-                                ps.setBigDecimal(columnIndex, Globals.defaultIfNullBigDecimal(row.getBigDecimal(name)));
-                                break;
-                            }
-                            case "BOOLEAN": {
-                                ps.setBoolean(columnIndex, row.getBoolean(name));
-                                break;
-                            }
-                            case "SHORT_DATE_TIME": {
-                                LocalDateTime value = row.getLocalDateTime(name);
-
-                                if (value == null) {
-                                    ps.setNull(columnIndex, Types.DATE);
-                                } else {
-                                    DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-                                    ps.setTimestamp(columnIndex, Timestamp.valueOf(value.format(format)));
-                                }
-
-                                break;
-                            }
-                            case "MEMO":
-                            case "GUID":
-                            case "TEXT": {
-                                ps.setString(columnIndex, row.getString(name));
-                                break;
-                            }
-                            case "BINARY": {
-                                byte[] data = row.getBytes(name);
-
-                                if (data.length > 0) {
-                                    ps.setBytes(columnIndex, data);
-                                } else {
-                                    ps.setNull(columnIndex, Types.BLOB);
-                                }
-
-                                break;
-                            }
-                            case "OLE": {
-                                var fileValue = new FileValue(args, Globals.OUTPUT_SQLITE, this);
-
-                                try {
-                                    if (fileValue.handleOle(column, row, row.getBlob(name))) {
-                                        var json = fileValue.getRecordsJson();
-                                        ps.setString(columnIndex, json);
-                                    } else {
-                                        ps.setNull(columnIndex, Types.BLOB);
-                                    }
-                                } catch (IOException e) {
-                                    ps.setNull(columnIndex, Types.BLOB);
-                                    Error(
-                                        String.format(
-                                            "Count not fetch OLE data for column '%s' (%s) in table '%s'",
-                                            name, row.getId().hashCode(), tableName
-                                        )
-                                    );
-                                }
-
-                                break;
-                            }
-                            case "COMPLEX_TYPE": {
-                                if (column.getComplexInfo().getType().name() == "ATTACHMENT") {
-                                    try {
-                                        ComplexValueForeignKey valueFk =
-                                            (ComplexValueForeignKey)column.getRowValue(row);
-                                        List<Attachment> attachments = valueFk.getAttachments();
-
-                                        if (!attachments.isEmpty()) {
-                                            var fileValue = new FileValue(args, Globals.OUTPUT_SQLITE, this);
-
-                                            if (fileValue.handleAttachments(column, row, attachments)) {
-                                                var json = fileValue.getRecordsJson();
-                                                ps.setString(columnIndex, json);
-                                            } else {
-                                                ps.setNull(columnIndex, Types.BLOB);
-                                            }
-                                        } else {
-                                            ps.setNull(columnIndex, Types.BLOB);
-                                        }
-                                    } catch (IOException ex) {
-                                        ps.setNull(columnIndex, Types.BLOB);
-                                        Error(
-                                            String.format(
-                                                "Count not fetch attachments for column '%s' (%s) in table '%s'",
-                                                name, row.getId().hashCode(), tableName
-                                            )
-                                        );
-                                    }
-                                } else {
-                                    ps.setNull(columnIndex, Types.BLOB);
-                                }
-
-                                break;
-                            }
-                            default: {
-                                ps.setNull(columnIndex, Types.BLOB);
-                                break;
-                            }
-                        }
-                    } catch (NullPointerException e) {
-                        ps.setNull(columnIndex, Types.BLOB);
-                    }
+        } catch (SQLException e) {
+            Error("Could not restore connection auto commit", e, methodName);
+        }
+
+        insertStatement = null;
+        insertTable = null;
+    }
+
+    private void rollbackBulkLoad(Table table) {
+        if (!bulkLoad) {
+            return;
+        }
+
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            Error(String.format("Could not roll back the uncommitted rows of table '%s'", table.getName()), e, "rollbackBulkLoad");
+        }
+    }
+
+    private void setValue(PreparedStatement ps, int columnIndex, ColumnCodec column, RowBatch batch, int row) throws SQLException {
+        var index = column.index;
+        var isNull = batch.isNull(row, index);
+
+        switch (column.kind) {
+            case BYTE: {
+                if (isNull) {
+                    ps.setNull(columnIndex, Types.BLOB);
+                } else {
+                    ps.setByte(columnIndex, (byte) batch.getInt(row, index));
                 }
 
-                ps.addBatch();
+                break;
+            }
+            case INT:
+            case LONG: {
+                if (isNull) {
+                    ps.setNull(columnIndex, Types.BLOB);
+                } else {
+                    ps.setInt(columnIndex, batch.getInt(row, index));
+                }
 
-                if (++batchCount == 500) {
-                    ps.executeBatch();
-                    batchCount = 0;
+                break;
+            }
+            case FLOAT: {
+                ps.setFloat(columnIndex, isNull ? 0.0f : batch.getFloat(row, index));
+                break;
+            }
+            case DOUBLE: {
+                ps.setDouble(columnIndex, isNull ? 0.0 : batch.getDouble(row, index));
+                break;
+            }
+            case DECIMAL: {
+                ps.setBigDecimal(columnIndex, Globals.defaultIfNullBigDecimal((BigDecimal) batch.getObject(row, index)));
+                break;
+            }
+            case BOOLEAN: {
+                if (isNull) {
+                    ps.setNull(columnIndex, Types.BLOB);
+                } else {
+                    ps.setBoolean(columnIndex, batch.getBoolean(row, index));
                 }
 
-                AccessConverter.progressStatus.step();
+                break;
             }
+            case DATE_TIME: {
+                if (isNull) {
+                    ps.setNull(columnIndex, Types.DATE);
+                } else {
+                    ps.setTimestamp(columnIndex, Timestamp.valueOf(ValueEncoders.formatDateTime(batch.getDateTimeMillis(row, index))));
+                }
 
-            if (batchCount != 500) {
-                ps.executeBatch();
+                break;
             }
+            case TEXT: {
+                ps.setString(columnIndex, (String) batch.getObject(row, index));
+                break;
+            }
+            case BINARY: {
+                byte[] data = (byte[]) batch.getObject(row, index);
 
-            if (hasAutoIncrement) {
-                statement.executeUpdate(String.format("UPDATE SQLITE_SEQUENCE SET seq = %d WHERE name = '%s'", autoIncrement, tableName));
+                if (data != null && data.length > 0) {
+                    ps.setBytes(columnIndex, data);
+                } else {
+                    ps.setNull(columnIndex, Types.BLOB);
+                }
+
+                break;
+            }
+            case OLE: {
+                Object value = batch.getObject(row, index);
+
+                if (value instanceof ColumnCodec.ReadError) {
+                    ps.setNull(columnIndex, Types.BLOB);
+                    Error(
+                        String.format(
+                            "Count not fetch OLE data for column '%s' (%s) in table '%s'",
+                            column.name, batch.getId(row).hashCode(), column.column.getTable().getName()
+                        )
+                    );
+                    break;
+                }
+
+                setFileValue(ps, columnIndex, column, batch, row);
+                break;
             }
+            case ATTACHMENT: {
+                Object value = batch.getObject(row, index);
+
+                if (value instanceof ColumnCodec.ReadError) {
+                    ps.setNull(columnIndex, Types.BLOB);
+                    Error(
+                        String.format(
+                            "Count not fetch attachments for column '%s' (%s) in table '%s'",
+                            column.name, batch.getId(row).hashCode(), column.column.getTable().getName()
+                        )
+                    );
+                    break;
+                }
 
-            result = true;
-        } catch (SQLException e) {
-            Error(String.format("Could not create statement for table '%s'", table.getName()), e, methodName);
-            result = false;
-        } finally {
-            try {
-                connection.setAutoCommit(true);
-            } catch (SQLException e) {
-                Error("Could not restore connection auto commit", e, methodName);
-                result = false;
+                setFileValue(ps, columnIndex, column, batch, row);
+                break;
+            }
+            default: {
+                ps.setNull(columnIndex, Types.BLOB);
+                break;
             }
         }
+    }
 
-        return result;
+    /**
+     * Sets the JSON records of a file value, or with a companion file table,
+     * the number of files while their rows are batched into that table, keyed
+     * by the primary key of the parent row and their position.
+     */
+    private void setFileValue(PreparedStatement ps, int columnIndex, ColumnCodec column, RowBatch batch, int row) throws SQLException {
+        var records = batch.getFiles(row, column.index);
+
+        if (records == null) {
+            ps.setNull(columnIndex, Types.BLOB);
+            return;
+        }
+
+        var fileStatement = fileTableStatements.get(column.name);
+
+        if (fileStatement == null) {
+            ps.setString(columnIndex, getFileValue(args, Globals.OUTPUT_SQLITE, column.column).getRecordsJson(records));
+            return;
+        }
+
+        var fileTable = fileTables.get(column.name);
+
+        ps.setInt(columnIndex, records.size());
+
+        for (int position = 0; position < records.size(); position++) {
+            var record = records.get(position);
+            var fileIndex = 1;
+
+            for (int keyIndex : fileTable.keyIndexes) {
+                setValue(fileStatement, fileIndex++, batch.codec.columns[keyIndex], batch, row);
+            }
+
+            fileStatement.setInt(fileIndex++, position);
+            fileStatement.setString(fileIndex++, record.name);
+            fileStatement.setString(fileIndex++, record.type);
+
+            if (record.size != null) {
+                fileStatement.setLong(fileIndex++, record.size);
+            } else {
+                fileStatement.setNull(fileIndex++, Types.INTEGER);
+            }
+
+            fileStatement.setString(fileIndex++, record.hash);
+            fileStatement.setString(fileIndex++, record.path);
+
+            if (fileTable.withData) {
+                if (record.data != null && record.data.length > 0) {
+                    fileStatement.setBytes(fileIndex, record.data);
+                } else {
+                    fileStatement.setNull(fileIndex, Types.BLOB);
+                }
+            }
+
+            fileStatement.addBatch();
+        }
     }
 }
@@ -24,58 +24,271 @@
 package com.lytrax.accessconverter;
 
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 
 import org.apache.commons.text.TextStringBuilder;
 
 /**
+ * Buffered SQL output over a {@link FileChannel} or the standard output. Characters are encoded as
+ * UTF-8 straight into a reusable byte buffer, and numbers are rendered without
+ * intermediate strings; constant fragments can be encoded once with
+ * {@link #encode(CharSequence)} and written as raw bytes.
  *
  * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
  */
 public class SqlFileWriter implements AutoCloseable {
-    private FileWriter writer;
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private static final byte[] MIN_LONG = encode(Long.toString(Long.MIN_VALUE));
+
+    private final WritableByteChannel channel;
+    private final boolean closeChannel;
+    private final byte[] bytes;
+    private final ByteBuffer buffer;
+    private int position = 0;
+    private final byte[] digits = new byte[20];
+
+    /**
+     * Scratch space for encoders that render a value before writing it.
+     */
+    final char[] scratch = new char[32];
 
     public SqlFileWriter(File file) throws IOException {
-        writer = new FileWriter(file);
+        this(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    public SqlFileWriter(File file, int bufferSize) throws IOException {
+        this(
+            FileChannel.open(
+                file.toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING
+            ),
+            true,
+            bufferSize
+        );
+    }
+
+    /**
+     * Writes to a stream, such as a compressing one, which is closed with the writer.
+     */
+    public SqlFileWriter(OutputStream out) {
+        this(Channels.newChannel(out), true, DEFAULT_BUFFER_SIZE);
+    }
+
+    private SqlFileWriter(WritableByteChannel channel, boolean closeChannel, int bufferSize) {
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+        bytes = new byte[Math.max(bufferSize, 64)];
+        buffer = ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Returns a writer over the standard output. Closing it flushes the buffer
+     * but leaves the standard output open.
+     */
+    public static SqlFileWriter stdout() {
+        return new SqlFileWriter(
+            Channels.newChannel(new FileOutputStream(FileDescriptor.out)),
+            false,
+            DEFAULT_BUFFER_SIZE
+        );
+    }
+
+    /**
+     * Encodes a constant fragment as UTF-8 so it can be written repeatedly with
+     * {@link #write(byte[])}.
+     */
+    public static byte[] encode(CharSequence str) {
+        return str.toString().getBytes(StandardCharsets.UTF_8);
     }
 
     @Override
     public void close() throws IOException {
-        writer.close();
+        try {
+            flush();
+        } finally {
+            if (closeChannel) {
+                channel.close();
+            }
+        }
     }
 
-    public void write(String str) throws IOException {
-        writer.write(str);
+    public void write(byte[] data) throws IOException {
+        write(data, 0, data.length);
     }
 
-    public void write(Integer i) throws IOException {
-        writer.write(i.toString());
+    public void write(byte[] data, int offset, int length) throws IOException {
+        if (length > bytes.length - position) {
+            flush();
+
+            if (length > bytes.length) {
+                writeFully(ByteBuffer.wrap(data, offset, length));
+                return;
+            }
+        }
+
+        System.arraycopy(data, offset, bytes, position, length);
+        position += length;
+    }
+
+    public void write(char c) throws IOException {
+        if (c < 0x80) {
+            if (position == bytes.length) {
+                flush();
+            }
+
+            bytes[position++] = (byte) c;
+        } else {
+            write(String.valueOf(c));
+        }
+    }
+
+    public void write(CharSequence str) throws IOException {
+        write(str, 0, str.length());
+    }
+
+    /**
+     * Writes the characters of {@code str} from {@code start} (inclusive) to
+     * {@code end} (exclusive).
+     */
+    public void write(CharSequence str, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            // Leave room for the longest UTF-8 sequence
+            if (bytes.length - position < 4) {
+                flush();
+            }
+
+            char c = str.charAt(i);
+
+            if (c < 0x80) {
+                bytes[position++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[position++] = (byte) (0xc0 | (c >> 6));
+                bytes[position++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(str.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, str.charAt(++i));
+                bytes[position++] = (byte) (0xf0 | (codePoint >> 18));
+                bytes[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                bytes[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                bytes[position++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate, same replacement as String.getBytes
+                bytes[position++] = '?';
+            } else {
+                bytes[position++] = (byte) (0xe0 | (c >> 12));
+                bytes[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                bytes[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    public void write(char[] chars, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            if (chars[i] >= 0x80) {
+                write(CharBuffer.wrap(chars), i, end);
+                return;
+            }
+
+            if (position == bytes.length) {
+                flush();
+            }
+
+            bytes[position++] = (byte) chars[i];
+        }
+    }
+
+    public void write(int i) throws IOException {
+        write((long) i);
+    }
+
+    public void write(long l) throws IOException {
+        if (l == Long.MIN_VALUE) {
+            write(MIN_LONG);
+            return;
+        }
+
+        if (bytes.length - position < 20) {
+            flush();
+        }
+
+        if (l < 0) {
+            bytes[position++] = '-';
+            l = -l;
+        }
+
+        int count = 0;
+
+        do {
+            digits[count++] = (byte) ('0' + (l % 10));
+            l /= 10;
+        } while (l != 0);
+
+        while (count > 0) {
+            bytes[position++] = digits[--count];
+        }
     }
 
     public void write(TextStringBuilder sb) throws IOException {
-        writer.write(sb.toString());
+        write((CharSequence) sb);
     }
 
     public void write(String format, Object... args) throws IOException {
-        writer.write(String.format(format, args));
+        write(String.format(format, args));
     }
 
-    public void writeln(String str) throws IOException {
-        writer.write(str);
-        writer.write("\n");
+    public void writeln(CharSequence str) throws IOException {
+        write(str);
+        write('\n');
     }
 
     public void writeln(String format, Object... args) throws IOException {
-        writer.write(String.format(format, args));
-        writer.write("\n");
+        write(String.format(format, args));
+        write('\n');
     }
 
     public void writeNewLine() throws IOException {
-        writer.write("\n");
+        write('\n');
     }
 
     public void flush() throws IOException {
-        writer.flush();
+        if (position > 0) {
+            buffer.clear().limit(position);
+            writeFully(buffer);
+            position = 0;
+        }
+    }
+
+    private void writeFully(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    /**
+     * Appends the contents of a file, letting the channels copy the data directly.
+     */
+    public void append(File file) throws IOException {
+        flush();
+
+        try (FileChannel source = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long position = 0;
+            long size = source.size();
+
+            while (position < size) {
+                position += source.transferTo(position, size - position, channel);
+            }
+        }
     }
 }
@@ -0,0 +1,56 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2024 Christos Lytras <christos.lytras@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.lytrax.accessconverter;
+
+import com.healthmarketscience.jackcess.Table;
+
+import java.io.IOException;
+
+/**
+ * An output that receives a database one table at a time. The rows of each
+ * table are pushed in batches, so a single scan can feed several outputs.
+ *
+ * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
+ */
+public interface TableSink {
+    /**
+     * Starts the output. Returns false if the output could not be created.
+     */
+    boolean open();
+
+    /**
+     * Writes the table structure. Returns false if the rows of the table
+     * should not be passed to this output.
+     */
+    boolean startTable(Table table) throws IOException;
+
+    void addRows(RowBatch batch) throws IOException;
+
+    void endTable(Table table) throws IOException;
+
+    /**
+     * Finishes the output. Returns false if it could not be completed.
+     */
+    boolean close();
+}
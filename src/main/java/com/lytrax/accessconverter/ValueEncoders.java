@@ -0,0 +1,245 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2024 Christos Lytras <christos.lytras@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.lytrax.accessconverter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Encoders that render cell values straight into the output without building
+ * intermediate strings: escaped MySQL string literals, hex blobs, date times
+ * from epoch milliseconds and half-up rounding of floats.
+ *
+ * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
+ */
+public final class ValueEncoders {
+    public static final int DATE_TIME_LENGTH = 19;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final long MILLIS_PER_DAY = 86400000L;
+    private static final int BASE64_CHUNK_SIZE = 3 << 14;
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private ValueEncoders() {}
+
+    /**
+     * Writes a quoted MySQL string literal. Besides doubling the single quotes,
+     * backslashes, NUL, line breaks and Ctrl+Z are escaped the way mysqldump does.
+     */
+    public static void writeSqlString(SqlFileWriter writer, CharSequence value) throws IOException {
+        writer.write('\'');
+        writeSqlStringContent(writer, value);
+        writer.write('\'');
+    }
+
+    /**
+     * Writes the escaped content of a MySQL string literal, without the quotes.
+     */
+    public static void writeSqlStringContent(SqlFileWriter writer, CharSequence value) throws IOException {
+        int length = value.length();
+        int start = 0;
+
+        for (int i = 0; i < length; i++) {
+            String escape;
+
+            switch (value.charAt(i)) {
+                case '\'': escape = "''"; break;
+                case '\\': escape = "\\\\"; break;
+                case '\0': escape = "\\0"; break;
+                case '\n': escape = "\\n"; break;
+                case '\r': escape = "\\r"; break;
+                case '\u001a': escape = "\\Z"; break;
+                default: continue;
+            }
+
+            writer.write(value, start, i);
+            writer.write(escape);
+            start = i + 1;
+        }
+
+        writer.write(value, start, length);
+    }
+
+    /**
+     * Writes the Base64 encoding of a stream in chunks. The Base64 alphabet
+     * needs no escaping in SQL or JSON strings; the padding characters are
+     * written as {@code padding}, for outputs that escape them.
+     */
+    public static void writeBase64(SqlFileWriter writer, InputStream data, String padding) throws IOException {
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        byte[] chunk = new byte[BASE64_CHUNK_SIZE];
+        byte[] encoded = new byte[BASE64_CHUNK_SIZE / 3 * 4];
+        int filled = 0;
+        int count;
+
+        while ((count = data.read(chunk, filled, chunk.length - filled)) >= 0) {
+            filled += count;
+
+            // Full chunks are a multiple of 3 bytes, so only the last one needs padding
+            if (filled == chunk.length) {
+                writer.write(encoded, 0, encoder.encode(chunk, encoded));
+                filled = 0;
+            }
+        }
+
+        if (filled > 0) {
+            writer.write(encoder.encode(Arrays.copyOf(chunk, filled)));
+
+            for (int i = filled % 3; i > 0 && i < 3; i++) {
+                writer.write(padding);
+            }
+        }
+    }
+
+    /**
+     * Writes the lowercase hexadecimal digits of {@code data}.
+     */
+    public static void writeHex(SqlFileWriter writer, byte[] data) throws IOException {
+        for (byte b : data) {
+            writer.write(HEX_DIGITS[(b >> 4) & 0x0f]);
+            writer.write(HEX_DIGITS[b & 0x0f]);
+        }
+    }
+
+    /**
+     * Writes a local date time given as epoch milliseconds (see
+     * {@link RowBatch#getDateTimeMillis(int, int)}) as a quoted
+     * {@code 'yyyy-MM-dd HH:mm:ss'} literal.
+     */
+    public static void writeSqlDateTime(SqlFileWriter writer, long millis) throws IOException {
+        char[] chars = writer.scratch;
+
+        if (formatDateTime(millis, chars, 1)) {
+            chars[0] = '\'';
+            chars[DATE_TIME_LENGTH + 1] = '\'';
+            writer.write(chars, 0, DATE_TIME_LENGTH + 2);
+        } else {
+            writer.write('\'');
+            writer.write(formatWithFormatter(millis));
+            writer.write('\'');
+        }
+    }
+
+    public static String formatDateTime(long millis) {
+        char[] chars = new char[DATE_TIME_LENGTH];
+
+        return formatDateTime(millis, chars, 0) ? new String(chars) : formatWithFormatter(millis);
+    }
+
+    private static String formatWithFormatter(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L), 0, ZoneOffset.UTC).format(DATE_TIME_FORMAT);
+    }
+
+    /**
+     * Fills {@code DATE_TIME_LENGTH} characters of {@code chars} starting at
+     * {@code offset}. Returns false for years outside 1-9999, which are left
+     * to the formatter.
+     */
+    private static boolean formatDateTime(long millis, char[] chars, int offset) {
+        long days = Math.floorDiv(millis, MILLIS_PER_DAY);
+        int secondOfDay = (int) (Math.floorMod(millis, MILLIS_PER_DAY) / 1000);
+
+        // Civil date from days since 1970-01-01 (proleptic Gregorian calendar)
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        if (year < 1 || year > 9999) {
+            return false;
+        }
+
+        putDigits(chars, offset, (int) year, 4);
+        chars[offset + 4] = '-';
+        putDigits(chars, offset + 5, month, 2);
+        chars[offset + 7] = '-';
+        putDigits(chars, offset + 8, day, 2);
+        chars[offset + 10] = ' ';
+        putDigits(chars, offset + 11, secondOfDay / 3600, 2);
+        chars[offset + 13] = ':';
+        putDigits(chars, offset + 14, secondOfDay / 60 % 60, 2);
+        chars[offset + 16] = ':';
+        putDigits(chars, offset + 17, secondOfDay % 60, 2);
+
+        return true;
+    }
+
+    private static void putDigits(char[] chars, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * Rounds a float half up to {@code scale} decimals, with the same result
+     * as {@link Globals#floatValue(Object,
+     * com.healthmarketscience.jackcess.Column)}, which rounds the decimal
+     * string of the value with {@link BigDecimal}. The fast path scales the
+     * binary double value of the float and rounds it arithmetically, which
+     * only differs from rounding the decimal string near a rounding tie; when
+     * the scaled fraction is within the error of the two of a tie, it falls
+     * back to rounding {@link Float#toString} with {@link BigDecimal}.
+     */
+    public static double roundHalfUp(float value, int scale) {
+        double number = value;
+
+        if (scale < POWERS_OF_TEN.length && !Float.isNaN(value) && !Float.isInfinite(value)) {
+            double power = POWERS_OF_TEN[scale];
+            double scaled = Math.abs(number) * power;
+
+            if (scaled < 0x1p52) {
+                double floor = Math.floor(scaled);
+                double fraction = scaled - floor;
+                // The float's decimal string may differ from its binary value
+                // by up to half an ulp, plus the error of the multiplication
+                double tolerance = Math.ulp(value) * power + 4 * Math.ulp(scaled);
+
+                if (Math.abs(fraction - 0.5) > tolerance) {
+                    double rounded = (fraction > 0.5 ? floor + 1 : floor) / power;
+                    return number < 0 && rounded != 0 ? -rounded : rounded;
+                }
+            }
+        }
+
+        BigDecimal bigDecimal = new BigDecimal(Double.valueOf(Float.toString(value)));
+
+        return bigDecimal.setScale(scale, RoundingMode.HALF_UP).doubleValue();
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2024 Christos Lytras <christos.lytras@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.lytrax.accessconverter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * A zip archive written entry by entry. Output files are deflated with a
+ * {@link ParallelDeflater}, while attachment and OLE files are added from
+ * their streams as they are decoded; already compressed types are stored
+ * as they are. Entries and archives larger than 4GB are written with the
+ * zip64 extensions.
+ *
+ * @author Christos Lytras {@literal <christos.lytras@gmail.com>}
+ */
+public class ZipArchive implements AutoCloseable {
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+    /**
+     * Entries from this size are written as zip64, leaving room for deflate
+     * output that is larger than its input.
+     */
+    private static final long ZIP64_ENTRY_SIZE = 0xF0000000L;
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+        "jpg", "jpeg", "png", "gif", "webp", "zip", "gz", "7z", "rar", "pdf",
+        "docx", "xlsx", "pptx", "mp3", "mp4", "avi", "mov"
+    );
+
+    private static class CentralEntry {
+        byte[] name;
+        int method;
+        int dosTime;
+        long offset;
+        ParallelDeflater.Deflated deflated;
+        boolean isZip64;
+    }
+
+    public final File file;
+    private final int level;
+    private final FileChannel out;
+    private final List<CentralEntry> entries = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+    private final byte[] buffer = new byte[1 << 16];
+    private final byte[] compressed = new byte[1 << 16];
+
+    public ZipArchive(File file, int level) throws IOException {
+        this.file = file;
+        this.level = level;
+        out = ParallelDeflater.openOutput(file);
+    }
+
+    /**
+     * Whether files of this type are stored without deflating them again.
+     */
+    public static boolean isCompressedType(String name) {
+        return COMPRESSED_EXTENSIONS.contains(FilenameUtils.getExtension(name).toLowerCase());
+    }
+
+    /**
+     * Adds a file, named after it, deflated in parallel blocks.
+     */
+    public synchronized void addFile(File file, ParallelDeflater deflater) throws IOException {
+        CentralEntry entry = startEntry(file.getName(), METHOD_DEFLATED, file.lastModified(), file.length());
+
+        try {
+            entry.deflated = deflater.deflate(file, out);
+            finishEntry(entry);
+        } catch (IOException | RuntimeException e) {
+            throw abortEntry(entry, e);
+        }
+
+        addToDirectory(file.getName(), entry);
+    }
+
+    /**
+     * Adds an entry from a stream. Returns false if an entry with the same
+     * name already exists.
+     */
+    public synchronized boolean addEntry(String name, InputStream data) throws IOException {
+        if (names.contains(name)) {
+            return false;
+        }
+
+        boolean isStored = isCompressedType(name);
+        CentralEntry entry = startEntry(name, isStored ? METHOD_STORED : METHOD_DEFLATED, System.currentTimeMillis(), 0);
+        ParallelDeflater.Deflated deflated = new ParallelDeflater.Deflated();
+        Deflater deflater = isStored ? null : new Deflater(level, true);
+        CRC32 crc = new CRC32();
+        int count;
+
+        try {
+            while ((count = data.read(buffer)) >= 0) {
+                crc.update(buffer, 0, count);
+                deflated.size += count;
+
+                if (isStored) {
+                    deflated.compressedSize += write(buffer, count);
+                } else {
+                    deflater.setInput(buffer, 0, count);
+
+                    while (!deflater.needsInput()) {
+                        deflated.compressedSize += write(compressed, deflater.deflate(compressed));
+                    }
+                }
+            }
+
+            if (!isStored) {
+                deflater.finish();
+
+                while (!deflater.finished()) {
+                    deflated.compressedSize += write(compressed, deflater.deflate(compressed));
+                }
+            }
+
+            deflated.crc = crc.getValue();
+            entry.deflated = deflated;
+            finishEntry(entry);
+        } catch (IOException | RuntimeException e) {
+            throw abortEntry(entry, e);
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+
+        addToDirectory(name, entry);
+
+        return true;
+    }
+
+    /**
+     * Removes the partly written data of an entry that failed, so the archive
+     * ends with the last complete entry, and returns the error to throw.
+     */
+    private IOException abortEntry(CentralEntry entry, Exception e) {
+        try {
+            out.truncate(entry.offset);
+            out.position(entry.offset);
+        } catch (IOException truncateException) {
+            e.addSuppressed(truncateException);
+        }
+
+        return e instanceof IOException
+            ? (IOException) e
+            : new IOException(String.format("Could not add '%s' to the archive", new String(entry.name, StandardCharsets.UTF_8)), e);
+    }
+
+    /**
+     * Adds an entry to the central directory, once its data is complete.
+     */
+    private void addToDirectory(String name, CentralEntry entry) {
+        names.add(name);
+        entries.add(entry);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            writeCentralDirectory();
+        } finally {
+            out.close();
+        }
+    }
+
+    private int write(byte[] data, int count) throws IOException {
+        ByteBuffer source = ByteBuffer.wrap(data, 0, count);
+
+        while (source.hasRemaining()) {
+            out.write(source);
+        }
+
+        return count;
+    }
+
+    /**
+     * Writes the local header of an entry. Its CRC and sizes are patched in
+     * by {@link #finishEntry} once the data is written, and it is added to
+     * the central directory after that.
+     */
+    private CentralEntry startEntry(String name, int method, long time, long size) throws IOException {
+        CentralEntry entry = new CentralEntry();
+        entry.name = name.getBytes(StandardCharsets.UTF_8);
+        entry.method = method;
+        entry.dosTime = toDosTime(time);
+        entry.offset = out.position();
+        entry.isZip64 = size >= ZIP64_ENTRY_SIZE;
+
+        ByteBuffer header = ParallelDeflater.newBuffer(30 + entry.name.length + (entry.isZip64 ? 20 : 0));
+        header.putInt(0x04034b50);
+        header.putShort((short) (entry.isZip64 ? 45 : 20));
+        header.putShort((short) 0x0800);
+        header.putShort((short) method);
+        header.putInt(entry.dosTime);
+        header.putInt(0);
+        header.putInt(entry.isZip64 ? (int) ZIP64_LIMIT : 0);
+        header.putInt(entry.isZip64 ? (int) ZIP64_LIMIT : 0);
+        header.putShort((short) entry.name.length);
+        header.putShort((short) (entry.isZip64 ? 20 : 0));
+        header.put(entry.name);
+
+        if (entry.isZip64) {
+            header.putShort((short) 0x0001);
+            header.putShort((short) 16);
+            header.putLong(0);
+            header.putLong(0);
+        }
+
+        try {
+            ParallelDeflater.writeFully(out, header);
+        } catch (IOException e) {
+            throw abortEntry(entry, e);
+        }
+
+        return entry;
+    }
+
+    private void finishEntry(CentralEntry entry) throws IOException {
+        if (!entry.isZip64 && Math.max(entry.deflated.size, entry.deflated.compressedSize) >= ZIP64_LIMIT) {
+            throw new IOException(String.format(
+                "Size of '%s' exceeds the zip limit",
+                new String(entry.name, StandardCharsets.UTF_8)
+            ));
+        }
+
+        long end = out.position();
+        ByteBuffer sizes = ParallelDeflater.newBuffer(12);
+        sizes.putInt((int) entry.deflated.crc);
+
+        if (entry.isZip64) {
+            ParallelDeflater.writeFully(out.position(entry.offset + 14), sizes);
+
+            ByteBuffer extra = ParallelDeflater.newBuffer(16);
+            extra.putLong(entry.deflated.size);
+            extra.putLong(entry.deflated.compressedSize);
+            ParallelDeflater.writeFully(out.position(entry.offset + 30 + entry.name.length + 4), extra);
+        } else {
+            sizes.putInt((int) entry.deflated.compressedSize);
+            sizes.putInt((int) entry.deflated.size);
+            ParallelDeflater.writeFully(out.position(entry.offset + 14), sizes);
+        }
+
+        out.position(end);
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long directoryOffset = out.position();
+        boolean isZip64 = entries.size() >= 0xFFFF;
+
+        for (CentralEntry entry : entries) {
+            boolean entryZip64 = entry.isZip64 || entry.offset >= ZIP64_LIMIT;
+            ByteBuffer header = ParallelDeflater.newBuffer(46 + entry.name.length + (entryZip64 ? 28 : 0));
+
+            header.putInt(0x02014b50);
+            header.putShort((short) 45);
+            header.putShort((short) (entryZip64 ? 45 : 20));
+            header.putShort((short) 0x0800);
+            header.putShort((short) entry.method);
+            header.putInt(entry.dosTime);
+            header.putInt((int) entry.deflated.crc);
+            header.putInt(entryZip64 ? (int) ZIP64_LIMIT : (int) entry.deflated.compressedSize);
+            header.putInt(entryZip64 ? (int) ZIP64_LIMIT : (int) entry.deflated.size);
+            header.putShort((short) entry.name.length);
+            header.putShort((short) (entryZip64 ? 28 : 0));
+            header.putShort((short) 0);
+            header.putShort((short) 0);
+            header.putShort((short) 0);
+            header.putInt(0);
+            header.putInt(entryZip64 ? (int) ZIP64_LIMIT : (int) entry.offset);
+            header.put(entry.name);
+
+            if (entryZip64) {
+                header.putShort((short) 0x0001);
+                header.putShort((short) 24);
+                header.putLong(entry.deflated.size);
+                header.putLong(entry.deflated.compressedSize);
+                header.putLong(entry.offset);
+                isZip64 = true;
+            }
+
+            ParallelDeflater.writeFully(out, header);
+        }
+
+        long directoryEnd = out.position();
+        long directorySize = directoryEnd - directoryOffset;
+
+        if (isZip64 || directoryEnd >= ZIP64_LIMIT) {
+            isZip64 = true;
+
+            ByteBuffer record = ParallelDeflater.newBuffer(76);
+            record.putInt(0x06064b50);
+            record.putLong(44);
+            record.putShort((short) 45);
+            record.putShort((short) 45);
+            record.putInt(0);
+            record.putInt(0);
+            record.putLong(entries.size());
+            record.putLong(entries.size());
+            record.putLong(directorySize);
+            record.putLong(directoryOffset);
+
+            record.putInt(0x07064b50);
+            record.putInt(0);
+            record.putLong(directoryEnd);
+            record.putInt(1);
+            ParallelDeflater.writeFully(out, record);
+        }
+
+        ByteBuffer end = ParallelDeflater.newBuffer(22);
+        end.putInt(0x06054b50);
+        end.putShort((short) 0);
+        end.putShort((short) 0);
+        end.putShort((short) (isZip64 ? 0xFFFF : entries.size()));
+        end.putShort((short) (isZip64 ? 0xFFFF : entries.size()));
+        end.putInt(isZip64 ? (int) ZIP64_LIMIT : (int) directorySize);
+        end.putInt(isZip64 ? (int) ZIP64_LIMIT : (int) directoryOffset);
+        end.putShort((short) 0);
+        ParallelDeflater.writeFully(out, end);
+    }
+
+    private static int toDosTime(long millis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+
+        if (time.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+
+        return (time.getYear() - 1980) << 25
+            | time.getMonthValue() << 21
+            | time.getDayOfMonth() << 16
+            | time.getHour() << 11
+            | time.getMinute() << 5
+            | time.getSecond() >> 1;
+    }
+}